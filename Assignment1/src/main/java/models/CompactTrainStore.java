@@ -0,0 +1,534 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * A compact store of wagons and trains for large rolling-stock simulations.
+ * All wagon attributes and links live in parallel int arrays indexed by a wagon slot,
+ * so millions of wagons take no objects of their own.
+ * Trains are referred to by the number returned from addTrain, wagons by their wagon id.
+ * The operations follow the same rules as the operations of Train.
+ */
+public class CompactTrainStore {
+    public static final int NONE = -1;          // no wagon, no train or no position
+
+    private static final int PASSENGER = 0;
+    private static final int FREIGHT = 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // wagon columns, one entry per wagon slot
+    private int[] wagonIds = new int[INITIAL_CAPACITY];
+    private int[] kinds = new int[INITIAL_CAPACITY];         // PASSENGER or FREIGHT
+    private int[] capacities = new int[INITIAL_CAPACITY];    // number of seats or max weight, depending on the kind
+    private int[] next = new int[INITIAL_CAPACITY];          // slot of the next wagon, or NONE
+    private int[] previous = new int[INITIAL_CAPACITY];      // slot of the previous wagon, or NONE
+    private int[] owners = new int[INITIAL_CAPACITY];        // the train that pulls the wagon, or NONE
+    private int numberOfWagonSlots;
+
+    // open addressing table from wagon id to wagon slot
+    private int[] idTableKeys = new int[2 * INITIAL_CAPACITY];
+    private int[] idTableSlots = newIdTableSlots(2 * INITIAL_CAPACITY);
+
+    // train columns, one entry per train
+    private Locomotive[] engines = new Locomotive[INITIAL_CAPACITY];
+    private String[] origins = new String[INITIAL_CAPACITY];
+    private String[] destinations = new String[INITIAL_CAPACITY];
+    private int[] firstWagons = new int[INITIAL_CAPACITY];
+    private int[] lastWagons = new int[INITIAL_CAPACITY];
+    private int[] numbersOfWagons = new int[INITIAL_CAPACITY];
+    private int[] totalCapacities = new int[INITIAL_CAPACITY];
+    private int numberOfTrains;
+
+    /* Representation invariants:
+        for every train t: firstWagons[t] == NONE || previous[firstWagons[t]] == NONE
+        for every train t: the sequence from firstWagons[t] ends at lastWagons[t], has numbersOfWagons[t] wagons
+            that all have owners[slot] == t, and totalCapacities[t] is the sum of their capacities
+        for every slot: next[slot] == NONE || previous[next[slot]] == slot
+     */
+
+    /**
+     * Adds a new loose passenger wagon to the store.
+     *
+     * @param wagonId       the unique id of the wagon
+     * @param numberOfSeats the number of seats of the wagon
+     */
+    public void addPassengerWagon(int wagonId, int numberOfSeats) {
+        if (numberOfSeats < 0) {
+            throw new IllegalArgumentException("Number of seats must be positive");
+        }
+        addWagon(wagonId, PASSENGER, numberOfSeats);
+    }
+
+    /**
+     * Adds a new loose freight wagon to the store.
+     *
+     * @param wagonId   the unique id of the wagon
+     * @param maxWeight the maximum weight of the wagon
+     */
+    public void addFreightWagon(int wagonId, int maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("The weight of the train must be positive");
+        }
+        addWagon(wagonId, FREIGHT, maxWeight);
+    }
+
+    private void addWagon(int wagonId, int kind, int capacity) {
+        if (slotOf(wagonId) != NONE) {
+            throw new IllegalArgumentException("Wagon-%d is already in the store".formatted(wagonId));
+        }
+        if (numberOfWagonSlots == wagonIds.length) {
+            int newLength = 2 * wagonIds.length;
+            wagonIds = Arrays.copyOf(wagonIds, newLength);
+            kinds = Arrays.copyOf(kinds, newLength);
+            capacities = Arrays.copyOf(capacities, newLength);
+            next = Arrays.copyOf(next, newLength);
+            previous = Arrays.copyOf(previous, newLength);
+            owners = Arrays.copyOf(owners, newLength);
+        }
+        int slot = numberOfWagonSlots++;
+        wagonIds[slot] = wagonId;
+        kinds[slot] = kind;
+        capacities[slot] = capacity;
+        next[slot] = NONE;
+        previous[slot] = NONE;
+        owners[slot] = NONE;
+        putSlot(wagonId, slot);
+    }
+
+    /**
+     * Adds a new train without wagons to the store.
+     *
+     * @return the number by which the train is referred to
+     */
+    public int addTrain(Locomotive engine, String origin, String destination) {
+        if (engine == null) {
+            throw new IllegalArgumentException("The engine must not be null.");
+        }
+        if (numberOfTrains == engines.length) {
+            int newLength = 2 * engines.length;
+            engines = Arrays.copyOf(engines, newLength);
+            origins = Arrays.copyOf(origins, newLength);
+            destinations = Arrays.copyOf(destinations, newLength);
+            firstWagons = Arrays.copyOf(firstWagons, newLength);
+            lastWagons = Arrays.copyOf(lastWagons, newLength);
+            numbersOfWagons = Arrays.copyOf(numbersOfWagons, newLength);
+            totalCapacities = Arrays.copyOf(totalCapacities, newLength);
+        }
+        int train = numberOfTrains++;
+        engines[train] = engine;
+        origins[train] = origin;
+        destinations[train] = destination;
+        firstWagons[train] = NONE;
+        lastWagons[train] = NONE;
+        return train;
+    }
+
+    /**
+     * Attaches the loose tail wagon and its successors behind the front wagon, like Wagon.attachTail.
+     * Neither of the wagons may be pulled by a train.
+     *
+     * @throws IllegalStateException if the front wagon already pulls a wagon,
+     *                               or if the tail wagon is already attached to a wagon in front of it.
+     */
+    public void attachTail(int frontWagonId, int tailWagonId) {
+        int front = requireSlot(frontWagonId);
+        int tail = requireSlot(tailWagonId);
+        if (front == tail) {
+            throw new IllegalArgumentException("Cannot attach a wagon to itself");
+        } else if (next[front] != NONE) {
+            throw new IllegalStateException("[Wagon-%d] is already pulling [Wagon-%d]".formatted(frontWagonId, wagonIds[next[front]]));
+        } else if (previous[tail] != NONE) {
+            throw new IllegalStateException("[Wagon-%d] has already been attached to [Wagon-%d]".formatted(tailWagonId, wagonIds[previous[tail]]));
+        } else if (owners[front] != NONE || owners[tail] != NONE) {
+            throw new IllegalStateException("Wagons of a train must be attached through the train");
+        }
+        next[front] = tail;
+        previous[tail] = front;
+    }
+
+    public Locomotive getEngine(int train) {
+        return engines[train];
+    }
+
+    public int getNumberOfTrains() {
+        return numberOfTrains;
+    }
+
+    public int getNumberOfWagons(int train) {
+        return numbersOfWagons[train];
+    }
+
+    public boolean hasWagons(int train) {
+        return firstWagons[train] != NONE;
+    }
+
+    public boolean isPassengerTrain(int train) {
+        return hasWagons(train) && kinds[firstWagons[train]] == PASSENGER;
+    }
+
+    public boolean isFreightTrain(int train) {
+        return hasWagons(train) && kinds[firstWagons[train]] == FREIGHT;
+    }
+
+    /**
+     * @return the id of the first wagon of the train, or NONE if the train has no wagons
+     */
+    public int getFirstWagonId(int train) {
+        return idOf(firstWagons[train]);
+    }
+
+    /**
+     * @return the id of the last wagon of the train, or NONE if the train has no wagons
+     */
+    public int getLastWagonId(int train) {
+        return idOf(lastWagons[train]);
+    }
+
+    /**
+     * @return the total number of seats on a passenger train (0 for a freight train)
+     */
+    public int getTotalNumberOfSeats(int train) {
+        return isPassengerTrain(train) ? totalCapacities[train] : 0;
+    }
+
+    /**
+     * @return the total maximum weight of a freight train (0 for a passenger train)
+     */
+    public int getTotalMaxWeight(int train) {
+        return isFreightTrain(train) ? totalCapacities[train] : 0;
+    }
+
+    /**
+     * @return the train that pulls the wagon with the given id, or NONE if it is loose or unknown
+     */
+    public int findTrainOfWagon(int wagonId) {
+        int slot = slotOf(wagonId);
+        return slot == NONE ? NONE : owners[slot];
+    }
+
+    /**
+     * Finds the wagon at the given position (starting at 1 for the first wagon of the train)
+     *
+     * @return the id of the wagon found, or NONE if the position is not valid for this train
+     */
+    public int findWagonIdAtPosition(int train, int position) {
+        return idOf(slotAtPosition(train, position));
+    }
+
+    /**
+     * Determines if the sequence headed by the given wagon can be attached to the train,
+     * following the rules of Train.canAttach
+     */
+    public boolean canAttach(int train, int wagonId) {
+        int head = slotOf(wagonId);
+        return head != NONE && canAttach(train, head, sequenceLength(head));
+    }
+
+    private boolean canAttach(int train, int head, int numberOfWagons) {
+        if (hasWagons(train) && kinds[head] != kinds[firstWagons[train]]) return false;
+        if (numbersOfWagons[train] + numberOfWagons > engines[train].getMaxWagons()) return false;
+        return owners[head] != train;
+    }
+
+    /**
+     * Tries to attach the sequence headed by the given wagon to the rear of the train, like Train.attachToRear
+     */
+    public boolean attachToRear(int train, int wagonId) {
+        int head = slotOf(wagonId);
+        if (head == NONE || !canAttach(train, head, sequenceLength(head))) return false;
+
+        detachSequence(head);
+        linkAfter(train, lastWagons[train], head);
+        return true;
+    }
+
+    /**
+     * Tries to insert the sequence headed by the given wagon at the front of the train, like Train.insertAtFront
+     */
+    public boolean insertAtFront(int train, int wagonId) {
+        return insertAtPosition(train, 1, wagonId);
+    }
+
+    /**
+     * Tries to insert the sequence headed by the given wagon at/before the given position in the train,
+     * like Train.insertAtPosition
+     */
+    public boolean insertAtPosition(int train, int position, int wagonId) {
+        int head = slotOf(wagonId);
+        if (head == NONE || position < 1 || position > numbersOfWagons[train] + 1 ||
+                !canAttach(train, head, sequenceLength(head))) return false;
+
+        detachSequence(head);
+        linkAfter(train, position == 1 ? NONE : slotAtPosition(train, position - 1), head);
+        return true;
+    }
+
+    /**
+     * Tries to move one wagon of the train to the rear of toTrain, like Train.moveOneWagon
+     */
+    public boolean moveOneWagon(int train, int wagonId, int toTrain) {
+        int slot = slotOf(wagonId);
+        if (slot == NONE || owners[slot] != train || train == toTrain || !canAttach(toTrain, slot, 1)) return false;
+
+        // unlink the wagon from its neighbours and the train
+        int front = previous[slot];
+        int tail = next[slot];
+        if (front == NONE) firstWagons[train] = tail;
+        else next[front] = tail;
+        if (tail == NONE) lastWagons[train] = front;
+        else previous[tail] = front;
+        next[slot] = NONE;
+        previous[slot] = NONE;
+        release(train, slot);
+
+        linkAfter(toTrain, lastWagons[toTrain], slot);
+        return true;
+    }
+
+    /**
+     * Tries to split the train before the wagon at the given position and move that sequence
+     * to the rear of toTrain, like Train.splitAtPosition
+     */
+    public boolean splitAtPosition(int train, int position, int toTrain) {
+        int head = slotAtPosition(train, position);
+        if (head == NONE || train == toTrain ||
+                !canAttach(toTrain, head, numbersOfWagons[train] - position + 1)) return false;
+
+        detachSequence(head);
+        linkAfter(toTrain, lastWagons[toTrain], head);
+        return true;
+    }
+
+    /**
+     * Reverses the sequence of wagons in the train, like Train.reverse
+     */
+    public void reverse(int train) {
+        int slot = firstWagons[train];
+        while (slot != NONE) {
+            int following = next[slot];
+            next[slot] = previous[slot];
+            previous[slot] = following;
+            slot = following;
+        }
+        int first = firstWagons[train];
+        firstWagons[train] = lastWagons[train];
+        lastWagons[train] = first;
+    }
+
+    /**
+     * Creates a flyweight view on the wagons of the train, positioned at the first wagon.
+     * The view can be moved along the train without allocating any further objects.
+     */
+    public WagonView view(int train) {
+        return new WagonView(firstWagons[train]);
+    }
+
+    public String toString(int train) {
+        StringBuilder sb = new StringBuilder();
+        for (int slot = firstWagons[train]; slot != NONE; slot = next[slot]) {
+            sb.append("[Wagon-%d]".formatted(wagonIds[slot]));
+        }
+        sb.append(" with ")
+                .append(numbersOfWagons[train])
+                .append(" wagons from ")
+                .append(origins[train])
+                .append(" to ")
+                .append(destinations[train]);
+        return sb.toString();
+    }
+
+    /**
+     * Detaches the sequence from the given wagon onwards from its predecessor and from the train that pulls it, if any.
+     *
+     * @param head the slot of the first wagon of the sequence
+     */
+    private void detachSequence(int head) {
+        int owner = owners[head];
+        int front = previous[head];
+        if (front != NONE) {
+            next[front] = NONE;
+            previous[head] = NONE;
+        }
+        if (owner != NONE) {
+            lastWagons[owner] = front;
+            if (front == NONE) firstWagons[owner] = NONE;
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                release(owner, slot);
+            }
+        }
+    }
+
+    /**
+     * Links the loose sequence headed by the given wagon behind the front wagon in the train.
+     *
+     * @param train the train that shall pull the sequence
+     * @param front the slot of the wagon to link behind, or NONE to link at the front of the train
+     * @param head  the slot of the first wagon of a detached sequence
+     */
+    private void linkAfter(int train, int front, int head) {
+        int last = head;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            owners[slot] = train;
+            numbersOfWagons[train]++;
+            totalCapacities[train] += capacities[slot];
+            last = slot;
+        }
+
+        int tail = front == NONE ? firstWagons[train] : next[front];
+        if (front == NONE) firstWagons[train] = head;
+        else next[front] = head;
+        previous[head] = front;
+        next[last] = tail;
+        if (tail == NONE) lastWagons[train] = last;
+        else previous[tail] = last;
+    }
+
+    private void release(int train, int slot) {
+        owners[slot] = NONE;
+        numbersOfWagons[train]--;
+        totalCapacities[train] -= capacities[slot];
+    }
+
+    private int sequenceLength(int head) {
+        int length = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            length++;
+        }
+        return length;
+    }
+
+    private int slotAtPosition(int train, int position) {
+        if (position < 1 || position > numbersOfWagons[train]) return NONE;
+
+        int slot = firstWagons[train];
+        for (int i = 1; i < position; i++) {
+            slot = next[slot];
+        }
+        return slot;
+    }
+
+    private int idOf(int slot) {
+        return slot == NONE ? NONE : wagonIds[slot];
+    }
+
+    private int requireSlot(int wagonId) {
+        int slot = slotOf(wagonId);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Wagon-%d is not in the store".formatted(wagonId));
+        }
+        return slot;
+    }
+
+    private int slotOf(int wagonId) {
+        int mask = idTableKeys.length - 1;
+        for (int i = mix(wagonId) & mask; idTableSlots[i] != NONE; i = (i + 1) & mask) {
+            if (idTableKeys[i] == wagonId) return idTableSlots[i];
+        }
+        return NONE;
+    }
+
+    private void putSlot(int wagonId, int slot) {
+        // keep the id table at most half full
+        if (2 * numberOfWagonSlots > idTableKeys.length) {
+            int[] oldKeys = idTableKeys;
+            int[] oldSlots = idTableSlots;
+            idTableKeys = new int[2 * oldKeys.length];
+            idTableSlots = newIdTableSlots(2 * oldKeys.length);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] != NONE) insertSlot(oldKeys[i], oldSlots[i]);
+            }
+        }
+        insertSlot(wagonId, slot);
+    }
+
+    private void insertSlot(int wagonId, int slot) {
+        int mask = idTableKeys.length - 1;
+        int i = mix(wagonId) & mask;
+        while (idTableSlots[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        idTableKeys[i] = wagonId;
+        idTableSlots[i] = slot;
+    }
+
+    private static int[] newIdTableSlots(int length) {
+        int[] slots = new int[length];
+        Arrays.fill(slots, NONE);
+        return slots;
+    }
+
+    private static int mix(int key) {
+        // spread consecutive wagon ids over the table
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A flyweight, read-only view on one wagon in the store that can be moved along its sequence.
+     */
+    public class WagonView {
+        private int slot;
+
+        private WagonView(int slot) {
+            this.slot = slot;
+        }
+
+        /**
+         * @return whether the view is positioned at a wagon
+         */
+        public boolean isValid() {
+            return slot != NONE;
+        }
+
+        public int getId() {
+            return wagonIds[slot];
+        }
+
+        public boolean isPassengerWagon() {
+            return kinds[slot] == PASSENGER;
+        }
+
+        public boolean isFreightWagon() {
+            return kinds[slot] == FREIGHT;
+        }
+
+        /**
+         * @return the number of seats of a passenger wagon (0 for a freight wagon)
+         */
+        public int getNumberOfSeats() {
+            return isPassengerWagon() ? capacities[slot] : 0;
+        }
+
+        /**
+         * @return the maximum weight of a freight wagon (0 for a passenger wagon)
+         */
+        public int getMaxWeight() {
+            return isFreightWagon() ? capacities[slot] : 0;
+        }
+
+        /**
+         * Moves the view to the next wagon in the sequence.
+         *
+         * @return this view
+         */
+        public WagonView moveToNext() {
+            slot = next[slot];
+            return this;
+        }
+
+        /**
+         * Moves the view to the previous wagon in the sequence.
+         *
+         * @return this view
+         */
+        public WagonView moveToPrevious() {
+            slot = previous[slot];
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "[Wagon-%d]".formatted(getId());
+        }
+    }
+}
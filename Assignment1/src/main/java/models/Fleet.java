@@ -0,0 +1,89 @@
+package models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of all wagons that run on the trains of a fleet, by their wagon id.
+ * The trains of the fleet keep the registry up to date with every attach, insert, move and split,
+ * so a wagon id can be checked for duplicates across all trains and a wagon can be located in O(1) time.
+ * Trains join a fleet when they are created, see Train(Locomotive, String, String, Fleet).
+ * The trains of a fleet are indexed trains, the wagons themselves know the train that pulls them.
+ * The registry is thread-safe, such that the trains of a RailYard can move and split wagons among each other concurrently.
+ * Admitting and registering a wagon that joins the fleet from outside is not atomic though,
+ * so such wagons shall be attached by one thread at a time: a conflicting registration fails
+ * rather than replacing the wagon that has registered the id first.
+ */
+public class Fleet {
+    private final Map<Integer, Wagon> wagonsById = new ConcurrentHashMap<>();   // every wagon on a train of the fleet
+
+    /**
+     * @return the number of wagons on all trains of the fleet
+     */
+    public int getNumberOfWagons() {
+        return wagonsById.size();
+    }
+
+    /**
+     * Finds a wagon on any train of the fleet
+     *
+     * @param wagonId the id of the wagon to be found
+     * @return the wagon found (return null if no train of the fleet pulls a wagon with the given wagonId)
+     */
+    public Wagon findWagonById(int wagonId) {
+        return wagonsById.get(wagonId);
+    }
+
+    /**
+     * Finds the train of the fleet that pulls the wagon with the given wagonId
+     *
+     * @param wagonId the id of the wagon
+     * @return the train found (return null if no train of the fleet pulls a wagon with the given wagonId)
+     */
+    public Train findTrainOfWagon(int wagonId) {
+        Wagon wagon = wagonsById.get(wagonId);
+        return wagon == null ? null : wagon.train;
+    }
+
+    /**
+     * Determines if a number of wagons can join the fleet without duplicating any wagon id,
+     * wagons that run on a train of the fleet already may move to another train.
+     *
+     * @param head           the head wagon of the wagons to consider
+     * @param numberOfWagons the number of wagons from the head wagon onwards to consider
+     * @return whether none of the wagons shares its id with another wagon of the fleet
+     */
+    public boolean admits(Wagon head, int numberOfWagons) {
+        Wagon wagon = head;
+        for (int i = 0; i < numberOfWagons && wagon != null; i++) {
+            Wagon registered = wagonsById.get(wagon.getId());
+            if (registered != null && registered != wagon) return false;
+            wagon = wagon.getNextWagon();
+        }
+        return true;
+    }
+
+    /**
+     * Registers a wagon that has joined a train of the fleet.
+     *
+     * @throws IllegalStateException if another wagon with the same id has been registered in the meantime
+     */
+    void register(Wagon wagon) {
+        Wagon registered = wagonsById.putIfAbsent(wagon.getId(), wagon);
+        if (registered != null && registered != wagon) {
+            throw new IllegalStateException("The fleet already has another [Wagon-%d]".formatted(wagon.getId()));
+        }
+    }
+
+    /**
+     * Unregisters a wagon that has left a train of the fleet.
+     */
+    void unregister(Wagon wagon) {
+        wagonsById.remove(wagon.getId(), wagon);
+    }
+
+    @Override
+    public String toString() {
+        return "Fleet with %d wagons".formatted(getNumberOfWagons());
+    }
+}
@@ -0,0 +1,235 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Plans freight departures by distributing a pool of freight wagons over a pool of locomotives.
+ * Every locomotive can pull at most its maximum number of wagons, so the total moved weight is maximal
+ * when the heaviest wagons of the pool are selected, up to the total capacity of all locomotives.
+ * The selected wagons are spread over the locomotives such that the trains carry weights as even as possible:
+ * first greedily, by adding the heaviest wagon to the lightest train that has capacity left,
+ * and then by a local search that moves or swaps wagons between pairs of a heavy and a light train,
+ * balancing all pairs in parallel.
+ */
+public class FreightPlanner {
+    private static final int MAX_ROUNDS = 32;           // the maximum number of rounds of the local search
+    private static final int MAX_SWAPS_PER_ROUND = 16;  // the maximum number of swaps between a pair in one round
+
+    private final String origin;
+    private final String destination;
+
+    public FreightPlanner(String origin, String destination) {
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    /**
+     * Assigns the heaviest wagons of the pool to the locomotives and builds the trains, see plan with trains.
+     * The wagons of the pool shall be loose or be pulled by indexed trains.
+     */
+    public List<Train> plan(Collection<Locomotive> locomotives, Collection<FreightWagon> wagons) {
+        return plan(locomotives, wagons, List.of());
+    }
+
+    /**
+     * Assigns the heaviest wagons of the pool to the locomotives and builds the trains through attachToRear.
+     * An assigned wagon that is pulled by a train is moved from that train through moveOneWagon,
+     * an assigned loose wagon is first removed from any sequence that it is part of.
+     * The other wagons of the pool are not changed.
+     * A wagon of an indexed train knows its train, but a wagon of a plain train does not,
+     * so the plain trains that pull wagons of the pool shall be given.
+     *
+     * @param locomotives the locomotives that are available for departure
+     * @param wagons      the freight wagons that are waiting for departure, with unique ids
+     * @param trains      the plain trains that pull wagons of the pool
+     * @return an indexed train for every locomotive, in the order of the locomotives
+     * @throws IllegalArgumentException if more than one wagon of the pool has the same id
+     */
+    public List<Train> plan(Collection<Locomotive> locomotives, Collection<FreightWagon> wagons, Collection<Train> trains) {
+        FreightWagon[] heaviestFirst = wagons.toArray(new FreightWagon[0]);
+        Set<Integer> ids = new HashSet<>();
+        for (FreightWagon wagon : heaviestFirst) {
+            if (!ids.add(wagon.getId())) {
+                throw new IllegalArgumentException("The pool has more than one wagon with id %d".formatted(wagon.getId()));
+            }
+        }
+        Arrays.sort(heaviestFirst, Comparator.comparingInt(FreightWagon::getMaxWeight).reversed());
+
+        List<Load> loads = new ArrayList<>();
+        for (Locomotive locomotive : locomotives) {
+            loads.add(new Load(locomotive));
+        }
+        distributeGreedily(loads, heaviestFirst);
+        balance(loads);
+
+        Map<Wagon, Train> owners = new IdentityHashMap<>();
+        for (Train train : trains) {
+            for (Wagon wagon : train) {
+                owners.put(wagon, train);
+            }
+        }
+
+        List<Train> departures = new ArrayList<>();
+        for (Load load : loads) {
+            Train train = new Train(load.locomotive, origin, destination, true);
+            for (int i = load.wagons.size() - 1; i >= 0; i--) {
+                FreightWagon wagon = load.wagons.get(i);
+                if (!attach(train, wagon, wagon.train != null ? wagon.train : owners.get(wagon))) {
+                    throw new IllegalStateException("%s could not be attached to %s".formatted(wagon, train));
+                }
+            }
+            departures.add(train);
+        }
+        return departures;
+    }
+
+    /**
+     * Attaches a single wagon to the rear of the train, taking it from the train that pulls it, if any.
+     *
+     * @return whether the wagon has been attached
+     */
+    private static boolean attach(Train train, FreightWagon wagon, Train owner) {
+        if (owner != null) return owner.moveOneWagon(wagon.getId(), train);
+        wagon.removeFromSequence();
+        return train.attachToRear(wagon);
+    }
+
+    /**
+     * Adds the heaviest wagons one by one to the lightest train that has capacity left,
+     * until all locomotives are at capacity or all wagons have been assigned.
+     */
+    private static void distributeGreedily(List<Load> loads, FreightWagon[] heaviestFirst) {
+        PriorityQueue<Load> lightestFirst = new PriorityQueue<>(Comparator.comparingLong((Load load) -> load.weight)
+                .thenComparingInt(load -> load.wagons.size()));
+        for (Load load : loads) {
+            if (load.capacity > 0) lightestFirst.add(load);
+        }
+        for (FreightWagon wagon : heaviestFirst) {
+            Load lightest = lightestFirst.poll();
+            if (lightest == null) break;
+            lightest.add(wagon);
+            if (lightest.wagons.size() < lightest.capacity) lightestFirst.add(lightest);
+        }
+        // the local search keeps the wagons of every load sorted by weight
+        for (Load load : loads) {
+            load.wagons.sort(Comparator.comparingInt(FreightWagon::getMaxWeight));
+        }
+    }
+
+    /**
+     * Pairs the heaviest train with the lightest train, the second heaviest with the second lightest etc.
+     * and balances all pairs in parallel, until no pair can be improved any further.
+     */
+    private static void balance(List<Load> loads) {
+        List<Load> heaviestFirst = new ArrayList<>(loads);
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            heaviestFirst.sort(Comparator.comparingLong((Load load) -> load.weight).reversed());
+            int pairs = heaviestFirst.size() / 2;
+            // the pairs are disjoint, so every pair can be balanced by its own thread
+            long improved = IntStream.range(0, pairs).parallel()
+                    .filter(i -> balancePair(heaviestFirst.get(i), heaviestFirst.get(heaviestFirst.size() - 1 - i)))
+                    .count();
+            if (improved == 0) return;
+        }
+    }
+
+    /**
+     * Moves or swaps wagons from the heavy train to the light train, as long as that reduces their difference in weight.
+     *
+     * @return whether the pair has been improved
+     */
+    private static boolean balancePair(Load heavy, Load light) {
+        boolean improved = false;
+        for (int swap = 0; swap < MAX_SWAPS_PER_ROUND; swap++) {
+            long difference = heavy.weight - light.weight;
+            if (difference <= 0) break;
+
+            // the best exchange moves half of the difference from the heavy to the light train
+            int bestHeavy = -1, bestLight = -1;
+            long bestRemainder = difference;
+            boolean lightHasCapacity = light.wagons.size() < light.capacity;
+            for (int h = 0; h < heavy.wagons.size(); h++) {
+                int weight = heavy.wagons.get(h).getMaxWeight();
+                if (lightHasCapacity && Math.abs(difference - 2L * weight) < bestRemainder) {
+                    bestRemainder = Math.abs(difference - 2L * weight);
+                    bestHeavy = h;
+                    bestLight = -1;
+                }
+                int l = light.indexOfClosest(weight - difference / 2);
+                for (int candidate = l - 1; candidate <= l; candidate++) {
+                    if (candidate < 0 || candidate >= light.wagons.size()) continue;
+                    long exchanged = weight - light.wagons.get(candidate).getMaxWeight();
+                    if (Math.abs(difference - 2 * exchanged) < bestRemainder) {
+                        bestRemainder = Math.abs(difference - 2 * exchanged);
+                        bestHeavy = h;
+                        bestLight = candidate;
+                    }
+                }
+            }
+            if (bestHeavy < 0) break;
+
+            FreightWagon toLight = heavy.remove(bestHeavy);
+            if (bestLight >= 0) heavy.insert(light.remove(bestLight));
+            light.insert(toLight);
+            improved = true;
+        }
+        return improved;
+    }
+
+    /**
+     * The wagons that are assigned to a locomotive during planning.
+     */
+    private static class Load {
+        final Locomotive locomotive;
+        final int capacity;
+        final List<FreightWagon> wagons = new ArrayList<>();
+        long weight;
+
+        Load(Locomotive locomotive) {
+            this.locomotive = locomotive;
+            this.capacity = locomotive.getMaxWagons();
+        }
+
+        void add(FreightWagon wagon) {
+            wagons.add(wagon);
+            weight += wagon.getMaxWeight();
+        }
+
+        /**
+         * Inserts a wagon, keeping the wagons sorted by weight.
+         */
+        void insert(FreightWagon wagon) {
+            wagons.add(indexOfClosest(wagon.getMaxWeight()), wagon);
+            weight += wagon.getMaxWeight();
+        }
+
+        FreightWagon remove(int index) {
+            FreightWagon wagon = wagons.remove(index);
+            weight -= wagon.getMaxWeight();
+            return wagon;
+        }
+
+        /**
+         * @return the index of the first wagon that weighs at least the given weight, or the number of wagons
+         */
+        int indexOfClosest(long weight) {
+            int low = 0, high = wagons.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (wagons.get(middle).getMaxWeight() < weight) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package models;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A rail yard that owns many trains and lets many shunting workers move and split wagons concurrently.
+ * Every train has its own lock. An operation on two trains locks both in the order of their loc numbers,
+ * so concurrent workers can never deadlock on each other.
+ * The trains of the yard shall only be changed through the yard.
+ */
+public class RailYard {
+    private final Map<Integer, Train> trains = new ConcurrentHashMap<>();         // the trains by their loc number
+    private final Map<Integer, ReentrantLock> locks = new ConcurrentHashMap<>();  // one lock per train by loc number
+
+    private final LongAdder completedOperations = new LongAdder();
+    private final LongAdder rejectedOperations = new LongAdder();
+    private volatile long startedAt = System.nanoTime();
+
+    /**
+     * Adds a train to the yard.
+     *
+     * @param train the train, identified by the loc number of its engine
+     * @throws IllegalArgumentException if the yard already has a train with the same loc number
+     */
+    public void addTrain(Train train) {
+        int locNumber = train.getEngine().getLocNumber();
+        // publish the lock before the train, such that every train that can be found also has its lock
+        // a train with the same loc number keeps its own lock
+        locks.putIfAbsent(locNumber, new ReentrantLock());
+        if (trains.putIfAbsent(locNumber, train) != null) {
+            throw new IllegalArgumentException("The yard already has a train with %s".formatted(train.getEngine()));
+        }
+    }
+
+    public Collection<Train> getTrains() {
+        return Collections.unmodifiableCollection(trains.values());
+    }
+
+    /**
+     * Moves one wagon between two trains of the yard, see Train.moveOneWagon
+     *
+     * @param fromLocNumber the loc number of the train that pulls the wagon
+     * @param wagonId       the id of the wagon to be moved
+     * @param toLocNumber   the loc number of the train that shall pull the wagon
+     * @return whether the move could be completed successfully
+     */
+    public boolean moveOneWagon(int fromLocNumber, int wagonId, int toLocNumber) {
+        return applyToPair(fromLocNumber, toLocNumber, (from, to) -> from.moveOneWagon(wagonId, to));
+    }
+
+    /**
+     * Splits a train of the yard and moves the rear part to another train of the yard, see Train.splitAtPosition
+     *
+     * @param fromLocNumber the loc number of the train to be split
+     * @param position      the position of the first wagon to be moved
+     * @param toLocNumber   the loc number of the train that shall pull the split wagons
+     * @return whether the split could be completed successfully
+     */
+    public boolean splitAtPosition(int fromLocNumber, int position, int toLocNumber) {
+        return applyToPair(fromLocNumber, toLocNumber, (from, to) -> from.splitAtPosition(position, to));
+    }
+
+    /**
+     * Reads or changes a single train of the yard while holding its lock.
+     *
+     * @param locNumber the loc number of the train
+     * @param action    the action on the train
+     * @return the outcome of the action
+     */
+    public <R> R withTrain(int locNumber, Function<Train, R> action) {
+        Train train = requireTrain(locNumber);
+        ReentrantLock lock = locks.get(locNumber);
+        lock.lock();
+        try {
+            return action.apply(train);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean applyToPair(int fromLocNumber, int toLocNumber, TrainPairOperation operation) {
+        if (fromLocNumber == toLocNumber) {
+            rejectedOperations.increment();
+            return false;
+        }
+        Train from = requireTrain(fromLocNumber);
+        Train to = requireTrain(toLocNumber);
+
+        // always lock the lowest loc number first
+        ReentrantLock first = locks.get(Math.min(fromLocNumber, toLocNumber));
+        ReentrantLock second = locks.get(Math.max(fromLocNumber, toLocNumber));
+        boolean succeeded;
+        first.lock();
+        try {
+            second.lock();
+            try {
+                succeeded = operation.apply(from, to);
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+
+        if (succeeded) completedOperations.increment();
+        else rejectedOperations.increment();
+        return succeeded;
+    }
+
+    private Train requireTrain(int locNumber) {
+        Train train = trains.get(locNumber);
+        if (train == null) {
+            throw new IllegalArgumentException("The yard has no train with [Loc-%d]".formatted(locNumber));
+        }
+        return train;
+    }
+
+    public long getCompletedOperations() {
+        return completedOperations.sum();
+    }
+
+    public long getRejectedOperations() {
+        return rejectedOperations.sum();
+    }
+
+    /**
+     * @return the number of completed and rejected operations per second since the yard was created or last reset
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startedAt) / 1E9;
+        return (getCompletedOperations() + getRejectedOperations()) / seconds;
+    }
+
+    /**
+     * Resets the operation counters and the start time of the throughput measurement.
+     */
+    public void resetStatistics() {
+        completedOperations.reset();
+        rejectedOperations.reset();
+        startedAt = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return "Rail yard with %d trains: %d operations completed, %d rejected, %.0f operations/s"
+                .formatted(trains.size(), getCompletedOperations(), getRejectedOperations(), getThroughput());
+    }
+
+    @FunctionalInterface
+    private interface TrainPairOperation {
+        boolean apply(Train from, Train to);
+    }
+}
@@ -0,0 +1,474 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A shunting plan collects attach, insert, move and split steps against many trains
+ * and executes them as a whole.
+ * The complete plan is validated in one pass over the affected trains before any train is changed,
+ * and the plan is applied atomically: if a step still fails, all affected trains are restored.
+ * Wagons that are attached by the plan shall be loose or be part of a train in the plan.
+ */
+public class ShuntingPlan {
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Adds a step that attaches the sequence headed by the wagon to the rear of the train, see Train.attachToRear
+     */
+    public ShuntingPlan attachToRear(Train train, Wagon wagon) {
+        steps.add(new Insert(train, 0, wagon));
+        return this;
+    }
+
+    /**
+     * Adds a step that inserts the sequence headed by the wagon at the front of the train, see Train.insertAtFront
+     */
+    public ShuntingPlan insertAtFront(Train train, Wagon wagon) {
+        steps.add(new Insert(train, 1, wagon));
+        return this;
+    }
+
+    /**
+     * Adds a step that inserts the sequence headed by the wagon at the given position, see Train.insertAtPosition
+     */
+    public ShuntingPlan insertAtPosition(Train train, int position, Wagon wagon) {
+        steps.add(new Insert(train, position, wagon));
+        return this;
+    }
+
+    /**
+     * Adds a step that moves one wagon to the rear of toTrain, see Train.moveOneWagon
+     */
+    public ShuntingPlan moveOneWagon(Train train, int wagonId, Train toTrain) {
+        steps.add(new Move(train, wagonId, toTrain));
+        return this;
+    }
+
+    /**
+     * Adds a step that splits the train and moves the rear part to toTrain, see Train.splitAtPosition
+     */
+    public ShuntingPlan splitAtPosition(Train train, int position, Train toTrain) {
+        steps.add(new Split(train, position, toTrain));
+        return this;
+    }
+
+    public int getNumberOfSteps() {
+        return steps.size();
+    }
+
+    /**
+     * Validates type, capacity and wagon id constraints of all steps of the plan against the affected trains,
+     * without changing any train or wagon.
+     *
+     * @return whether all steps of the plan can be applied in order
+     */
+    public boolean validate() {
+        return simulate() != null;
+    }
+
+    /**
+     * Runs all steps of the plan against simulated compositions of the affected trains.
+     *
+     * @return the simulation after all steps, or null if any step is not valid
+     */
+    private Simulation simulate() {
+        Simulation simulation = new Simulation();
+        // load all affected trains up front, so that the owner of every wagon in the plan is known
+        for (Step step : steps) {
+            step.record(simulation);
+        }
+        for (Step step : steps) {
+            if (!step.simulate(simulation)) return null;
+        }
+        return simulation;
+    }
+
+    /**
+     * Validates the plan and then applies all of its steps.
+     * No change is made if the plan is not valid or if any of its steps fails or throws.
+     *
+     * @return whether the complete plan has been applied
+     */
+    public boolean execute() {
+        Simulation simulation = simulate();
+        if (simulation == null) return false;
+
+        Snapshot snapshot = new Snapshot(simulation.originals);
+        try {
+            for (Step step : steps) {
+                if (!step.apply()) {
+                    snapshot.restore();
+                    return false;
+                }
+            }
+        } catch (RuntimeException e) {
+            snapshot.restore();
+            throw e;
+        }
+        return true;
+    }
+
+    private interface Step {
+        /**
+         * Checks the step against the simulated compositions and applies it to the simulation.
+         */
+        boolean simulate(Simulation simulation);
+
+        /**
+         * Applies the step to the actual trains.
+         */
+        boolean apply();
+
+        /**
+         * Records the compositions that this step could change.
+         */
+        void record(Composition composition);
+    }
+
+    /**
+     * Inserts a sequence at a position, or at the rear of the train if the position is 0.
+     */
+    private record Insert(Train train, int position, Wagon wagon) implements Step {
+        @Override
+        public boolean simulate(Simulation simulation) {
+            if (train == null || wagon == null) return false;
+            int numberOfWagons = simulation.sizeOf(train);
+            int index = position == 0 ? numberOfWagons : position - 1;
+            if (index < 0 || index > numberOfWagons || simulation.ownerOf(wagon) == train) return false;
+
+            List<Wagon> sequence = simulation.sequenceOf(wagon);
+            if (!simulation.canAccept(train, sequence)) return false;
+
+            simulation.moveTo(train, index, sequence);
+            return true;
+        }
+
+        @Override
+        public boolean apply() {
+            return position == 0 ? train.attachToRear(wagon) : train.insertAtPosition(position, wagon);
+        }
+
+        @Override
+        public void record(Composition composition) {
+            composition.recordTrain(train);
+            composition.recordSequence(wagon);
+        }
+    }
+
+    private record Move(Train train, int wagonId, Train toTrain) implements Step {
+        @Override
+        public boolean simulate(Simulation simulation) {
+            if (train == null || toTrain == null || toTrain == train) return false;
+            Wagon wagon = simulation.findWagonById(train, wagonId);
+            if (wagon == null) return false;
+
+            // only the wagon itself moves, not its successors
+            List<Wagon> sequence = List.of(wagon);
+            if (!simulation.canAccept(toTrain, sequence)) return false;
+
+            simulation.moveTo(toTrain, simulation.sizeOf(toTrain), sequence);
+            return true;
+        }
+
+        @Override
+        public boolean apply() {
+            return train.moveOneWagon(wagonId, toTrain);
+        }
+
+        @Override
+        public void record(Composition composition) {
+            composition.recordTrain(train);
+            composition.recordTrain(toTrain);
+        }
+    }
+
+    private record Split(Train train, int position, Train toTrain) implements Step {
+        @Override
+        public boolean simulate(Simulation simulation) {
+            if (train == null || toTrain == null || toTrain == train) return false;
+            if (position < 1 || position > simulation.sizeOf(train)) return false;
+
+            List<Wagon> sequence = simulation.sequenceOf(simulation.findWagonAtPosition(train, position));
+            if (!simulation.canAccept(toTrain, sequence)) return false;
+
+            simulation.moveTo(toTrain, simulation.sizeOf(toTrain), sequence);
+            return true;
+        }
+
+        @Override
+        public boolean apply() {
+            return train.splitAtPosition(position, toTrain);
+        }
+
+        @Override
+        public void record(Composition composition) {
+            composition.recordTrain(train);
+            composition.recordTrain(toTrain);
+        }
+    }
+
+    /**
+     * Receives the trains and loose sequences that are affected by a step.
+     */
+    private interface Composition {
+        void recordTrain(Train train);
+
+        void recordSequence(Wagon head);
+    }
+
+    /**
+     * The simulated compositions of the affected trains, each train is read only once.
+     * The simulation keeps its own links between the wagons that it moves, and knows the train of every wagon,
+     * such that every step costs as much as the actual operation on the train.
+     */
+    private static class Simulation implements Composition {
+        final Map<Train, List<Wagon>> originals = new LinkedHashMap<>();   // the compositions before the plan
+        final Map<Train, SimulatedTrain> trains = new HashMap<>();
+        final Map<Wagon, Train> owners = new HashMap<>();               // the simulated train of every wagon on a train
+        final Map<Integer, List<Wagon>> wagonsById = new HashMap<>();   // the wagons of the owners by their id
+        final Map<Wagon, Wagon> nextWagons = new HashMap<>();           // the simulated links that replace the actual links
+        final Map<Wagon, Wagon> previousWagons = new HashMap<>();
+
+        @Override
+        public void recordTrain(Train train) {
+            if (train != null) trainOf(train);
+        }
+
+        @Override
+        public void recordSequence(Wagon head) {
+            // loose sequences are only read when they are simulated
+        }
+
+        int sizeOf(Train train) {
+            return trainOf(train).size;
+        }
+
+        /**
+         * @return the affected train that pulls the given wagon in the simulation, or null if none does
+         */
+        Train ownerOf(Wagon wagon) {
+            return owners.get(wagon);
+        }
+
+        /**
+         * @return the wagon with the given id that the train pulls in the simulation, or null if it has none
+         */
+        Wagon findWagonById(Train train, int wagonId) {
+            trainOf(train);
+            for (Wagon wagon : wagonsById.getOrDefault(wagonId, List.of())) {
+                if (owners.get(wagon) == train) return wagon;
+            }
+            return null;
+        }
+
+        /**
+         * @param position 1 <= position <= the simulated number of wagons of the train
+         */
+        Wagon findWagonAtPosition(Train train, int position) {
+            Wagon wagon = trainOf(train).first;
+            for (int i = 1; i < position; i++) {
+                wagon = nextOf(wagon);
+            }
+            return wagon;
+        }
+
+        /**
+         * @return the simulated sequence from the given wagon up to the end of its train or loose sequence
+         */
+        List<Wagon> sequenceOf(Wagon head) {
+            List<Wagon> sequence = new ArrayList<>();
+            for (Wagon wagon = head; wagon != null; wagon = nextOf(wagon)) {
+                sequence.add(wagon);
+            }
+            return sequence;
+        }
+
+        /**
+         * Checks the constraints of Train.canAttach against the simulated composition and fleet:
+         * type, capacity, the id of the head wagon on the train and the ids of all wagons in the fleet of the train
+         */
+        boolean canAccept(Train train, List<Wagon> sequence) {
+            SimulatedTrain composition = trainOf(train);
+            Wagon head = sequence.get(0);
+            if (composition.first != null &&
+                    !(composition.first instanceof PassengerWagon && head instanceof PassengerWagon) &&
+                    !(composition.first instanceof FreightWagon && head instanceof FreightWagon)) return false;
+            if (composition.size + sequence.size() > train.getEngine().getMaxWagons()) return false;
+            if (findWagonById(train, head.getId()) != null) return false;
+            return train.getFleet() == null || admits(train.getFleet(), sequence);
+        }
+
+        /**
+         * Checks Fleet.admits against the simulation, in which wagons of the affected trains may have left the fleet
+         * and loose wagons may have joined it.
+         */
+        private boolean admits(Fleet fleet, List<Wagon> sequence) {
+            for (Wagon wagon : sequence) {
+                // a wagon of a train outside the plan stays in the fleet
+                Wagon registered = fleet.findWagonById(wagon.getId());
+                if (registered != null && registered != wagon && !owners.containsKey(registered)) return false;
+
+                for (Wagon other : wagonsById.getOrDefault(wagon.getId(), List.of())) {
+                    Train owner = owners.get(other);
+                    if (other != wagon && owner != null && owner.getFleet() == fleet) return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Moves the given wagons from their current simulated place into the train at the given index.
+         *
+         * @param sequence consecutive wagons of a train or a loose sequence
+         */
+        void moveTo(Train train, int index, List<Wagon> sequence) {
+            Wagon head = sequence.get(0);
+            Wagon tail = sequence.get(sequence.size() - 1);
+            unlink(head, tail, sequence.size());
+
+            SimulatedTrain composition = trainOf(train);
+            Wagon next = index == composition.size ? null : findWagonAtPosition(train, index + 1);
+            Wagon previous = next == null ? composition.last : previousOf(next);
+            link(previous, head);
+            link(tail, next);
+            if (previous == null) composition.first = head;
+            if (next == null) composition.last = tail;
+            composition.size += sequence.size();
+
+            for (Wagon wagon : sequence) {
+                if (!owners.containsKey(wagon)) {
+                    wagonsById.computeIfAbsent(wagon.getId(), id -> new ArrayList<>()).add(wagon);
+                }
+                owners.put(wagon, train);
+            }
+        }
+
+        /**
+         * Takes the wagons from head to tail out of their train or loose sequence, and closes the gap.
+         */
+        private void unlink(Wagon head, Wagon tail, int numberOfWagons) {
+            Wagon previous = previousOf(head);
+            Wagon next = nextOf(tail);
+            link(previous, next);
+
+            Train owner = owners.get(head);
+            if (owner == null) return;
+            SimulatedTrain composition = trains.get(owner);
+            if (composition.first == head) composition.first = next;
+            if (composition.last == tail) composition.last = previous;
+            composition.size -= numberOfWagons;
+        }
+
+        private void link(Wagon previous, Wagon next) {
+            if (previous != null) nextWagons.put(previous, next);
+            if (next != null) previousWagons.put(next, previous);
+        }
+
+        private Wagon nextOf(Wagon wagon) {
+            return nextWagons.containsKey(wagon) ? nextWagons.get(wagon) : wagon.getNextWagon();
+        }
+
+        private Wagon previousOf(Wagon wagon) {
+            return previousWagons.containsKey(wagon) ? previousWagons.get(wagon) : wagon.getPreviousWagon();
+        }
+
+        private SimulatedTrain trainOf(Train train) {
+            return trains.computeIfAbsent(train, t -> {
+                SimulatedTrain composition = new SimulatedTrain();
+                List<Wagon> original = new ArrayList<>();
+                for (Wagon wagon = t.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                    original.add(wagon);
+                    owners.put(wagon, t);
+                    wagonsById.computeIfAbsent(wagon.getId(), id -> new ArrayList<>()).add(wagon);
+                }
+                if (!original.isEmpty()) {
+                    composition.first = original.get(0);
+                    composition.last = original.get(original.size() - 1);
+                }
+                composition.size = original.size();
+                originals.put(t, original);
+                return composition;
+            });
+        }
+    }
+
+    /**
+     * The first and last wagon and the number of wagons of a train in the simulation
+     */
+    private static class SimulatedTrain {
+        Wagon first;
+        Wagon last;
+        int size;
+    }
+
+    /**
+     * The compositions of all trains and loose sequences that the plan could change.
+     */
+    private class Snapshot implements Composition {
+        final Map<Train, List<Wagon>> trains;
+        final Map<Wagon, Wagon> sequenceFronts = new HashMap<>();     // the predecessor of each loose sequence
+        final List<List<Wagon>> sequences = new ArrayList<>();
+
+        /**
+         * @param trains the compositions of all affected trains, as read by the validation
+         */
+        Snapshot(Map<Train, List<Wagon>> trains) {
+            this.trains = trains;
+            for (Step step : steps) {
+                step.record(this);
+            }
+        }
+
+        @Override
+        public void recordTrain(Train train) {
+            // the compositions of the trains have been recorded by the validation
+        }
+
+        @Override
+        public void recordSequence(Wagon head) {
+            if (head == null || sequenceFronts.containsKey(head)) return;
+            List<Wagon> sequence = new ArrayList<>();
+            for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+                sequence.add(wagon);
+            }
+            sequenceFronts.put(head, head.getPreviousWagon());
+            sequences.add(sequence);
+        }
+
+        /**
+         * Relinks all recorded wagons as they were and lets every train re-register its wagons.
+         */
+        void restore() {
+            trains.keySet().forEach(train -> train.setFirstWagon(null));
+
+            // sequences first, so that the train compositions override wagons that were on a train already
+            for (List<Wagon> sequence : sequences) {
+                Wagon front = sequenceFronts.get(sequence.get(0));
+                relink(sequence);
+                if (front != null) {
+                    front.setNextWagon(sequence.get(0));
+                    sequence.get(0).setPreviousWagon(front);
+                }
+            }
+            for (List<Wagon> composition : trains.values()) {
+                relink(composition);
+            }
+
+            trains.forEach((train, composition) -> train.setFirstWagon(composition.isEmpty() ? null : composition.get(0)));
+        }
+
+        private void relink(List<Wagon> wagons) {
+            Wagon previous = null;
+            for (Wagon wagon : wagons) {
+                wagon.setPreviousWagon(previous);
+                if (previous != null) previous.setNextWagon(wagon);
+                previous = wagon;
+            }
+            if (previous != null) previous.setNextWagon(null);
+        }
+    }
+}
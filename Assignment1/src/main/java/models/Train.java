@@ -1,17 +1,81 @@
 package models;
 
-public class Train {
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Train implements Iterable<Wagon> {
     private final String origin;
     private final String destination;
     private final Locomotive engine;
     private Wagon firstWagon;
 
+    // indexed composition mode, keeps the size, tail and id lookups of the train at O(1)
+    private final boolean indexed;
+    private final Map<Integer, Wagon> wagonsById;   // all wagons of this train by their id, null if not indexed
+    private Wagon lastWagon;                        // the last wagon of this train, only maintained if indexed
+    private int numberOfWagons;                     // the number of wagons of this train, only maintained if indexed
+    private int totalNumberOfSeats;                 // the running total of seats, only maintained if indexed
+    private int totalMaxWeight;                     // the running total of max weight, only maintained if indexed
+    private WagonRope positions;                    // optional positional index of an indexed train, null if not enabled
+    private boolean flipped;                        // the train runs from lastWagon to firstWagon, only set if indexed
+    private final Fleet fleet;                      // the fleet that registers the wagons of this train, null if none
+    private Wagon[] wagonsInOrder;                  // cached composition of an indexed train, null if out of date
+
     /* Representation invariants:
         firstWagon == null || firstWagon.previousWagon == null
         engine != null
+        indexed implies:
+            numberOfWagons == the length of the sequence from firstWagon
+            lastWagon == the last wagon of the sequence from firstWagon
+            wagonsById contains exactly the wagons of that sequence, each having wagon.train == this
+            fleet == null || fleet registers all wagons of that sequence
+            totalNumberOfSeats and totalMaxWeight are the sums over the passenger and freight wagons of that sequence
+            positions == null || positions holds the wagons of that sequence in the same order
+        flipped implies indexed and the train runs against the links of its wagons:
+            the wagons of the train then swap their next and previous wagon,
+            until any operation changes the links and straightens the train again
      */
 
     public Train(Locomotive engine, String origin, String destination) {
+        this(engine, origin, destination, false);
+    }
+
+    /**
+     * Creates a train that optionally keeps an index of its composition.
+     * An indexed train caches its number of wagons, its last wagon, a lookup of its wagons by id
+     * and its total number of seats and max weight,
+     * which are kept up to date by all operations of the train and by the operations of its wagons.
+     * (Only the raw setNextWagon and setPreviousWagon of its wagons bypass the index.)
+     *
+     * @param engine      the locomotive of the train
+     * @param origin      the origin of the train
+     * @param destination the destination of the train
+     * @param indexed     whether the composition of the train shall be indexed
+     */
+    public Train(Locomotive engine, String origin, String destination, boolean indexed) {
+        this(engine, origin, destination, indexed, null);
+    }
+
+    /**
+     * Creates an indexed train that registers its wagons with a fleet,
+     * which rejects any wagon that shares its id with another wagon on a train of the fleet.
+     *
+     * @param engine      the locomotive of the train
+     * @param origin      the origin of the train
+     * @param destination the destination of the train
+     * @param fleet       the fleet of the train
+     */
+    public Train(Locomotive engine, String origin, String destination, Fleet fleet) {
+        this(engine, origin, destination, true, fleet);
+    }
+
+    private Train(Locomotive engine, String origin, String destination, boolean indexed, Fleet fleet) {
         if (engine == null) {
             throw new IllegalArgumentException("The engine must not be null.");
         }
@@ -19,6 +83,54 @@ public class Train {
         this.engine = engine;
         this.destination = destination;
         this.origin = origin;
+        this.indexed = indexed;
+        this.wagonsById = indexed ? new HashMap<>() : null;
+        this.fleet = fleet;
+    }
+
+    /**
+     * Get whether this train keeps an index of its composition.
+     *
+     * @return True if this train is indexed, false otherwise.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Get the fleet that registers the wagons of this train.
+     *
+     * @return the fleet of this train, or null if the train does not belong to a fleet
+     */
+    public Fleet getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Adds a positional index to this indexed train, which makes finding the wagon at a position,
+     * inserting at a position and splitting at a position take O(log n) time.
+     * The positional index is kept up to date in the same way as the other indexes of the train.
+     *
+     * @throws IllegalStateException if this train is not indexed
+     */
+    public void enablePositionIndex() {
+        if (!indexed) {
+            throw new IllegalStateException("A positional index requires an indexed train");
+        }
+        if (positions != null) return;
+
+        straighten();
+        positions = new WagonRope();
+        if (firstWagon != null) positions.insert(0, firstWagon, lastWagon);
+    }
+
+    /**
+     * Get whether this train keeps a positional index of its wagons.
+     *
+     * @return True if this train has a positional index, false otherwise.
+     */
+    public boolean isPositionIndexed() {
+        return positions != null;
     }
 
     /**
@@ -80,7 +192,7 @@ public class Train {
      * @return the first wagon of the train.
      */
     public Wagon getFirstWagon() {
-        return firstWagon;
+        return flipped ? lastWagon : firstWagon;
     }
 
     /**
@@ -92,13 +204,25 @@ public class Train {
      *              (can be null)
      */
     public void setFirstWagon(Wagon wagon) {
+        straighten();
+        wagonsInOrder = null;
+        if (wagon != null && wagon.train != null) wagon.train.straighten();
+        if (indexed && firstWagon != null) release(firstWagon);
+
         this.firstWagon = wagon;
+
+        if (indexed) lastWagon = wagon == null ? null : adopt(wagon);
+        if (positions != null) {
+            positions.clear();
+            if (wagon != null) positions.insert(0, wagon, lastWagon);
+        }
     }
 
     /**
      * @return the number of Wagons connected to the train
      */
     public int getNumberOfWagons() {
+        if (indexed) return numberOfWagons;
         if (firstWagon == null) return 0;
 
         int count = 1;
@@ -114,6 +238,7 @@ public class Train {
      * @return the last wagon attached to the train
      */
     public Wagon getLastWagonAttached() {
+        if (indexed) return flipped ? firstWagon : lastWagon;
         if (firstWagon == null) return null;
 
         Wagon wagon = firstWagon;
@@ -128,6 +253,7 @@ public class Train {
      * (return 0 for a freight train)
      */
     public int getTotalNumberOfSeats() {
+        if (indexed) return isPassengerTrain() ? totalNumberOfSeats : 0;
         if (!(firstWagon instanceof PassengerWagon firstPassengerWagon)) return 0;
 
         Wagon nextWagon = firstWagon;
@@ -146,6 +272,7 @@ public class Train {
      * (return 0 for a passenger train)
      */
     public int getTotalMaxWeight() {
+        if (indexed) return isFreightTrain() ? totalMaxWeight : 0;
         if (!(firstWagon instanceof FreightWagon firstFreightWagon)) return 0;
 
         Wagon nextWagon = firstWagon;
@@ -166,9 +293,13 @@ public class Train {
      */
     public Wagon findWagonAtPosition(int position) {
         if (position < 1) return null;
+        if (positions != null) {
+            if (position > numberOfWagons) return null;
+            return positions.get(flipped ? numberOfWagons - position : position - 1);
+        }
 
         int i = 1;
-        Wagon nextWagon = firstWagon;
+        Wagon nextWagon = getFirstWagon();
         while (nextWagon != null) {
             if (i == position) return nextWagon;
             nextWagon = nextWagon.getNextWagon();
@@ -186,6 +317,8 @@ public class Train {
      * (return null if no wagon was found with the given wagonId)
      */
     public Wagon findWagonById(int wagonId) {
+        if (indexed) return wagonsById.get(wagonId);
+
         Wagon nextWagon = firstWagon;
         while (nextWagon != null) {
             if (nextWagon.getId() == wagonId) return nextWagon;
@@ -199,20 +332,33 @@ public class Train {
      * Verifies if the type of wagons match the type of train (Passenger or Freight)
      * Verifies that the capacity of the engine is sufficient to also pull the additional wagons
      * Verifies that the wagon is not part of the train already
+     * Verifies that no wagon of the sequence shares its id with another wagon of the fleet of the train, if any
      * Ignores the predecessors before the head wagon, if any
      *
      * @param wagon the head wagon of a sequence of wagons to consider for attachment
      * @return whether type and capacity of this train can accommodate attachment of the sequence
      */
     public boolean canAttach(Wagon wagon) {
+        if (wagon == null) return false;
+        return canAttach(wagon, wagon.getSequenceLength());
+    }
+
+    /**
+     * Determines if a number of wagons headed by the given wagon can be attached to this train
+     *
+     * @param wagon          the head wagon of the wagons to consider for attachment
+     * @param numberOfWagons the number of wagons to be attached
+     * @return whether type and capacity of this train can accommodate attachment of the wagons
+     */
+    private boolean canAttach(Wagon wagon, int numberOfWagons) {
         if (wagon == null) return false;
         // checking if the wagon matches the type of the train
         if (firstWagon == null || (isPassengerTrain() && wagon instanceof PassengerWagon) ||
                 (isFreightTrain() && wagon instanceof FreightWagon)) {
-            // checking if adding this wagon won't exceed the max wagon limit
-            if (getNumberOfWagons() + wagon.getSequenceLength() <= this.engine.getMaxWagons()) {
+            // checking if adding these wagons won't exceed the max wagon limit
+            if (getNumberOfWagons() + numberOfWagons <= this.engine.getMaxWagons()) {
                 // checking if the train doesn't already has this wagon.
-                return (findWagonById(wagon.getId()) == null);
+                return findWagonById(wagon.getId()) == null && (fleet == null || fleet.admits(wagon, numberOfWagons));
             }
             // continue
         }
@@ -229,28 +375,32 @@ public class Train {
      * @return whether the attachment could be completed successfully
      */
     public boolean attachToRear(Wagon wagon) {
+        // type and capacity are validated once for the whole sequence
         if (!canAttach(wagon)) return false;
 
-        Wagon nextWagon = wagon;
-        while (nextWagon != null) {
-            // getting the next wagon of this current wagon.
-            Wagon originalNextWagon = nextWagon.getNextWagon();
-            // detaching the tail from the current wagon.
-            nextWagon.detachTail();
-            // detaching the front from the current wagon.
-            nextWagon.detachFront();
-            if (hasWagons()) {
-                // if this train has wagons, attach the nextWagon to the end of the train (end of first wagon of this train).
-                firstWagon.getLastWagonAttached().attachTail(nextWagon);
-            } else {
-                // if this train does not have any wagons, setting the first wagon to the next wagon.
-                firstWagon = nextWagon;
-            }
-            nextWagon = originalNextWagon;
-        }
+        spliceAtRear(wagon);
         return true;
     }
 
+    /**
+     * Attaches the sequence of wagons to the rear of the train without validating it.
+     *
+     * @param wagon the head wagon of a sequence of wagons that can be attached
+     */
+    private void spliceAtRear(Wagon wagon) {
+        straighten();
+        // detaching the sequence from its predecessors, its successors move along with it
+        wagon.detachFront();
+
+        if (hasWagons()) {
+            // splicing the whole sequence behind the last wagon of this train in one step.
+            getLastWagonAttached().attachTail(wagon);
+        } else {
+            // if this train does not have any wagons, the sequence becomes the train.
+            setFirstWagon(wagon);
+        }
+    }
+
     /**
      * Tries to insert the given sequence of wagons at the front of the train
      * (the front is at position one, before the current first wagon, if any)
@@ -263,10 +413,11 @@ public class Train {
      */
     public boolean insertAtFront(Wagon wagon) {
         if (!canAttach(wagon)) return false;
+        straighten();
 
         if (firstWagon == null) {
             wagon.detachFront();
-            firstWagon = wagon;
+            setFirstWagon(wagon);
             return true;
         }
 
@@ -275,7 +426,8 @@ public class Train {
         Wagon originalFirstWagon = firstWagon;
         firstWagon = wagon;
 
-        Wagon lastWaggonOfSequence = wagon.getLastWagonAttached();
+        Wagon lastWaggonOfSequence = indexed ? adopt(wagon) : wagon.getLastWagonAttached();
+        if (positions != null) positions.insert(0, wagon, lastWaggonOfSequence);
         lastWaggonOfSequence.setNextWagon(originalFirstWagon);
         originalFirstWagon.setPreviousWagon(lastWaggonOfSequence);
         return true;
@@ -299,6 +451,7 @@ public class Train {
     public boolean insertAtPosition(int position, Wagon wagon) {
         final int numberOfWagons = getNumberOfWagons();
         if (!canAttach(wagon) || position < 1 || position > numberOfWagons + 1) return false;
+        straighten();
 
         if (position == 1) return insertAtFront(wagon);
         else if (position == numberOfWagons + 1) return attachToRear(wagon);
@@ -306,18 +459,20 @@ public class Train {
         wagon.detachFront();
 
         if (numberOfWagons == 0) {
-            firstWagon = wagon;
+            setFirstWagon(wagon);
             return true;
         }
 
         final Wagon wagonAtPosition = findWagonAtPosition(position);
+        // the sequence is inserted before an existing wagon, so the last wagon of this train does not change
+        Wagon lastSequenceOfWagon = indexed ? adopt(wagon) : wagon.getLastWagonAttached();
+        if (positions != null) positions.insert(position - 1, wagon, lastSequenceOfWagon);
         if (wagonAtPosition != null && wagonAtPosition.hasPreviousWagon()) {
             final Wagon previousWagon = wagonAtPosition.getPreviousWagon();
             previousWagon.setNextWagon(wagon);
             wagon.setPreviousWagon(previousWagon);
         }
 
-        Wagon lastSequenceOfWagon = wagon.getLastWagonAttached();
         lastSequenceOfWagon.setNextWagon(wagonAtPosition);
         if (wagonAtPosition != null) wagonAtPosition.setPreviousWagon(lastSequenceOfWagon);
 
@@ -341,11 +496,19 @@ public class Train {
         Wagon wagon = findWagonById(wagonId);
         if (wagon == null) return false;
 
-        if (equals(toTrain) || !toTrain.canAttach(wagon)) return false;
+        // only the wagon itself moves, not its successors
+        if (equals(toTrain) || !toTrain.canAttach(wagon, 1)) return false;
+        straighten();
 
         Wagon previous = wagon.getPreviousWagon();
         Wagon next = wagon.getNextWagon();
 
+        if (indexed) {
+            if (wagon == lastWagon) lastWagon = previous;
+            if (positions != null) positions.remove(wagon);
+            forget(wagon);
+        }
+
         wagon.setNextWagon(null);
         wagon.setPreviousWagon(null);
 
@@ -354,17 +517,18 @@ public class Train {
             previous.setNextWagon(next);
             next.setPreviousWagon(previous);
         }
-        // current wagon is the first wagon of the train.
-        else if (previous == null && next != null) {
-            next.setPreviousWagon(null);
+        // current wagon is the first wagon of the train (and possibly also the last one).
+        else if (previous == null) {
+            if (next != null) next.setPreviousWagon(null);
             firstWagon = next;
         }
         // current wagon is the last wagon of the train
-        else if (previous != null) {
+        else {
             previous.setNextWagon(null);
         }
 
-        toTrain.attachToRear(wagon);
+        // the move has been validated already
+        toTrain.spliceAtRear(wagon);
         return true;
     }
 
@@ -386,6 +550,7 @@ public class Train {
         Wagon wagonAtPosition = findWagonAtPosition(position);
 
         if (!toTrain.canAttach(wagonAtPosition)) return false;
+        straighten();
 
         if (position == 1) {
             setFirstWagon(null);
@@ -393,7 +558,8 @@ public class Train {
 
         wagonAtPosition.detachFront();
 
-        toTrain.attachToRear(wagonAtPosition);
+        // the split has been validated already
+        toTrain.spliceAtRear(wagonAtPosition);
         return true;
     }
 
@@ -403,14 +569,53 @@ public class Train {
      * the previous wagon of the last wagon becomes the second wagon
      * etc.
      * (No change if the train has no wagons or only one wagon)
+     * An indexed train only flips its direction in O(1) time,
+     * its wagons are relinked by the next operation that changes the train, if any.
      */
     public void reverse() {
         // reverse the train so the first wagon becomes the last wagon and everything in between
         final int numberOfWagons = getNumberOfWagons();
         if (numberOfWagons < 2) return;
 
+        if (indexed) {
+            flipped = !flipped;
+            wagonsInOrder = null;
+            return;
+        }
+        firstWagon = reverseLinks(firstWagon);
+    }
+
+    /**
+     * Get whether this indexed train runs against the links of its wagons, after an unfinished reversal.
+     */
+    boolean isFlipped() {
+        return flipped;
+    }
+
+    /**
+     * Relinks the wagons of a flipped train in its direction, which completes the pending reversal.
+     * The wagons of an indexed train straighten it before any change to their links.
+     */
+    void straighten() {
+        if (!flipped) return;
+        // the wagons follow their own links again while they are reversed
+        flipped = false;
+
+        Wagon oldFirstWagon = firstWagon;
+        firstWagon = reverseLinks(firstWagon);
+        lastWagon = oldFirstWagon;
+        if (positions != null) positions.reverse();
+    }
+
+    /**
+     * Reverses the links of all wagons of the sequence.
+     *
+     * @param head the first wagon of the sequence to reverse
+     * @return the new first wagon of the reversed sequence
+     */
+    private static Wagon reverseLinks(Wagon head) {
         Wagon prev = null;
-        Wagon current = firstWagon;
+        Wagon current = head;
         Wagon next;
         // looping until the next wagon is null, which means we are at the last wagon
         while (current != null) {
@@ -423,16 +628,208 @@ public class Train {
             prev = current;
             current = next;
         }
-        firstWagon = prev;
+        return prev;
+    }
+
+    /**
+     * Registers the given wagon and all its successors as part of this indexed train.
+     * Wagons that were still registered with another indexed train are taken over from that train.
+     *
+     * @param head the first wagon of the sequence to register
+     * @return the last wagon of the registered sequence
+     */
+    Wagon adopt(Wagon head) {
+        wagonsInOrder = null;
+        Wagon wagon = head;
+        Wagon last = head;
+        while (wagon != null) {
+            if (wagon.train != this) {
+                if (wagon.train != null) wagon.train.takenOver(wagon);
+                wagon.train = this;
+                wagonsById.put(wagon.getId(), wagon);
+                if (fleet != null) fleet.register(wagon);
+                numberOfWagons++;
+                addCapacity(wagon, 1);
+            }
+            last = wagon;
+            wagon = wagon.getNextWagon();
+        }
+        return last;
+    }
+
+    /**
+     * Unregisters the given wagon and all its successors from this indexed train.
+     *
+     * @param head the first wagon of the sequence to unregister
+     */
+    void release(Wagon head) {
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            if (wagon.train == this) forget(wagon);
+        }
+    }
+
+    /**
+     * Unregisters a single wagon from this indexed train.
+     *
+     * @param wagon the wagon to unregister
+     */
+    private void forget(Wagon wagon) {
+        wagonsInOrder = null;
+        wagonsById.remove(wagon.getId());
+        if (fleet != null) fleet.unregister(wagon);
+        numberOfWagons--;
+        addCapacity(wagon, -1);
+        wagon.train = null;
+    }
+
+    /**
+     * Adds the seats or max weight of a wagon to the running totals of this indexed train.
+     *
+     * @param wagon  the wagon that joins or leaves the train
+     * @param factor 1 if the wagon joins, -1 if it leaves the train
+     */
+    private void addCapacity(Wagon wagon, int factor) {
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            totalNumberOfSeats += factor * passengerWagon.getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon freightWagon) {
+            totalMaxWeight += factor * freightWagon.getMaxWeight();
+        }
+    }
+
+    /**
+     * Unregisters a wagon that is being registered by another train.
+     * That only happens to a wagon without predecessor, i.e. the first wagon of this train,
+     * and then all wagons of this train move along with it.
+     *
+     * @param wagon the wagon that is taken over
+     */
+    private void takenOver(Wagon wagon) {
+        forget(wagon);
+        if (wagon == firstWagon) {
+            firstWagon = null;
+            lastWagon = null;
+            if (positions != null) positions.clear();
+        }
+    }
+
+    /**
+     * Callback from a wagon of this indexed train that has attached a sequence at its tail.
+     *
+     * @param tail the first wagon of the attached sequence
+     */
+    void tailAttached(Wagon tail) {
+        lastWagon = adopt(tail);
+        if (positions != null) positions.insert(positions.size(), tail, lastWagon);
+    }
+
+    /**
+     * Callback from a wagon of this indexed train that has detached its tail from the front wagon.
+     *
+     * @param front the wagon that has become the last wagon of this train
+     * @param tail  the first wagon of the detached sequence
+     */
+    void tailDetached(Wagon front, Wagon tail) {
+        if (positions != null) positions.truncate(positions.indexOf(tail));
+        release(tail);
+        lastWagon = front;
+    }
+
+    /**
+     * Callback from a wagon of this indexed train that is about to remove itself from the sequence.
+     *
+     * @param wagon the wagon to be removed
+     */
+    void wagonRemoved(Wagon wagon) {
+        if (wagon == firstWagon) firstWagon = wagon.getNextWagon();
+        if (wagon == lastWagon) lastWagon = wagon.getPreviousWagon();
+        if (positions != null) positions.remove(wagon);
+        forget(wagon);
+    }
+
+    /**
+     * Callback from a wagon of this indexed train that has reversed the sequence up to the end of the train.
+     *
+     * @param oldHead the former first wagon of the reversed sequence, which is now the last wagon of the train
+     * @param newHead the former last wagon of the reversed sequence
+     */
+    void sequenceReversed(Wagon oldHead, Wagon newHead) {
+        wagonsInOrder = null;
+        if (oldHead == firstWagon) {
+            // the whole train has been reversed, otherwise the positional index followed the detach and re-attach
+            firstWagon = newHead;
+            if (positions != null) positions.reverse();
+        }
+        lastWagon = oldHead;
+    }
+
+    /**
+     * Iterates over the wagons of this train from the first wagon to the last wagon.
+     * The iterator follows the links of the wagons, so the train shall not be changed during iteration.
+     *
+     * @return an iterator over the wagons of this train
+     */
+    @Override
+    public Iterator<Wagon> iterator() {
+        return new Iterator<>() {
+            private Wagon next = getFirstWagon();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Wagon next() {
+                if (next == null) throw new NoSuchElementException();
+                Wagon wagon = next;
+                next = wagon.getNextWagon();
+                return wagon;
+            }
+        };
+    }
+
+    /**
+     * Creates a sized spliterator over the wagons of this train, that splits evenly for parallel processing.
+     * The spliterator covers the composition of the train when it is created,
+     * later changes of the train do not affect it.
+     * An indexed train caches its composition until it changes, so repeated streams do not walk the train again.
+     *
+     * @return a spliterator over the wagons of this train
+     */
+    @Override
+    public Spliterator<Wagon> spliterator() {
+        Wagon[] wagons = getWagonsInOrder();
+        return Spliterators.spliterator(wagons, 0, wagons.length,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * @return a sequential stream over the wagons of this train, which can be made parallel
+     */
+    public Stream<Wagon> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return the wagons of this train from the first wagon to the last wagon
+     */
+    private Wagon[] getWagonsInOrder() {
+        if (wagonsInOrder != null) return wagonsInOrder;
+
+        Wagon[] wagons = new Wagon[getNumberOfWagons()];
+        int i = 0;
+        for (Wagon wagon : this) {
+            wagons[i++] = wagon;
+        }
+        if (indexed) wagonsInOrder = wagons;
+        return wagons;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        Wagon nextWagon = firstWagon;
-        while (nextWagon != null) {
-            sb.append(nextWagon);
-            nextWagon = nextWagon.getNextWagon();
+        for (Wagon wagon : this) {
+            sb.append(wagon);
         }
 
         sb.append(" with ")
@@ -0,0 +1,364 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only journal of the operations on a set of trains since their last TrainSnapshot.
+ * The journal applies attach, insert, move, split and reverse operations to the trains
+ * and records every operation that succeeds, at the end of a memory-mapped journal file.
+ * Trains are identified by the loc number of their engine, wagons by their id.
+ * An attached or inserted sequence is recorded as coming from one of the trains, or in full if it was loose.
+ * The journal starts with the generation number of the snapshot it continues.
+ * Recovery reads the snapshot and replays the journal against its trains, if the journal is of the same generation.
+ */
+public class TrainJournal implements Closeable {
+    private static final int REGION_SIZE = 1 << 20;     // the journal file grows in regions of 1 MB
+    private static final int MAGIC = 0x54524E4A;        // "TRNJ"
+    private static final int HEADER_BYTES = 12;         // magic and generation
+
+    // the kinds of journal records, 0 marks the end of the journal
+    private static final byte ATTACH = 1;
+    private static final byte INSERT = 2;
+    private static final byte MOVE = 3;
+    private static final byte SPLIT = 4;
+    private static final byte REVERSE = 5;
+
+    private final Map<Integer, Train> trains;
+    private final FileChannel channel;
+    private MappedByteBuffer region;    // the mapped region of the file that receives the next record
+    private long regionStart;           // the position of the region in the file
+
+    /**
+     * Opens a journal for appending, after any operations that it already holds.
+     * A journal of another generation is emptied first,
+     * its operations are held by the snapshot of the given generation or have been replaced by it.
+     *
+     * @param file       the journal file, which is created if it does not exist
+     * @param generation the generation number of the snapshot that the journal continues
+     * @param trains     the trains of the journal by the loc number of their engine
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public TrainJournal(Path file, long generation, Map<Integer, Train> trains) {
+        this.trains = trains;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (generationOf(existing) == generation) {
+                mapRegion(endOfRecords(existing), REGION_SIZE);
+            } else {
+                channel.truncate(0);
+                mapRegion(0, REGION_SIZE);
+                region.putInt(MAGIC).putLong(generation);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the journal " + file, e);
+        }
+    }
+
+    /**
+     * Attaches a sequence of wagons to the rear of the train and records it, see Train.attachToRear
+     */
+    public boolean attachToRear(Train train, Wagon wagon) {
+        Train source = sourceOf(wagon);
+        List<Wagon> sequence = sequenceOf(wagon, source);
+        if (!train.attachToRear(wagon)) return false;
+        ByteBuffer record = reserve(14 + TrainSnapshot.WAGON_BYTES * sequence.size());
+        record.put(ATTACH).putInt(locNumberOf(train));
+        putSequence(record, source, sequence);
+        return true;
+    }
+
+    /**
+     * Inserts a sequence of wagons at a position of the train and records it, see Train.insertAtPosition
+     */
+    public boolean insertAtPosition(Train train, int position, Wagon wagon) {
+        Train source = sourceOf(wagon);
+        List<Wagon> sequence = sequenceOf(wagon, source);
+        if (!train.insertAtPosition(position, wagon)) return false;
+        ByteBuffer record = reserve(18 + TrainSnapshot.WAGON_BYTES * sequence.size());
+        record.put(INSERT).putInt(locNumberOf(train)).putInt(position);
+        putSequence(record, source, sequence);
+        return true;
+    }
+
+    /**
+     * Moves one wagon between two trains and records it, see Train.moveOneWagon
+     */
+    public boolean moveOneWagon(Train train, int wagonId, Train toTrain) {
+        if (!train.moveOneWagon(wagonId, toTrain)) return false;
+        reserve(13).put(MOVE).putInt(locNumberOf(train)).putInt(wagonId).putInt(locNumberOf(toTrain));
+        return true;
+    }
+
+    /**
+     * Splits the train, moves the rear part to another train and records it, see Train.splitAtPosition
+     */
+    public boolean splitAtPosition(Train train, int position, Train toTrain) {
+        if (!train.splitAtPosition(position, toTrain)) return false;
+        reserve(13).put(SPLIT).putInt(locNumberOf(train)).putInt(position).putInt(locNumberOf(toTrain));
+        return true;
+    }
+
+    /**
+     * Reverses the train and records it, see Train.reverse
+     */
+    public void reverse(Train train) {
+        train.reverse();
+        reserve(5).put(REVERSE).putInt(locNumberOf(train));
+    }
+
+    /**
+     * Forces all recorded operations to the storage device.
+     */
+    public void flush() {
+        region.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close the journal", e);
+        }
+    }
+
+    /**
+     * Restores the trains of a snapshot and replays the journal against them.
+     * A journal of another generation than the snapshot is ignored,
+     * it has been left behind by a checkpoint that crashed after it had replaced the snapshot.
+     *
+     * @param snapshot the snapshot file
+     * @param journal  the journal file, which may not exist if nothing happened after the snapshot
+     * @return the recovered trains by the loc number of their engine
+     */
+    public static Map<Integer, Train> recover(Path snapshot, Path journal) {
+        Map<Integer, Train> trains = TrainSnapshot.read(snapshot);
+        if (Files.exists(journal) && generationOf(journal) == TrainSnapshot.generationOf(snapshot)) {
+            replay(journal, trains);
+        }
+        return trains;
+    }
+
+    /**
+     * Writes a new snapshot of the trains and empties the journal, which then only holds the operations after it.
+     * The snapshot is written and forced to a temporary file first, which then replaces the previous snapshot at once.
+     * The new snapshot is of the next generation, so a crash leaves either the previous snapshot with its journal
+     * or the new snapshot with at most a journal of the previous generation, which is not replayed.
+     * The journal shall be closed and be opened again with the returned generation.
+     *
+     * @param snapshot the snapshot file
+     * @param journal  the journal file
+     * @param trains   the trains of the snapshot
+     * @return the generation number of the new snapshot
+     */
+    public static long checkpoint(Path snapshot, Path journal, Map<Integer, Train> trains) {
+        long generation = Files.exists(snapshot) ? TrainSnapshot.generationOf(snapshot) + 1 : 0;
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        TrainSnapshot.write(temporary, generation, trains.values());
+        try {
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace the snapshot " + snapshot, e);
+        }
+        try {
+            Files.deleteIfExists(journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot empty the journal " + journal, e);
+        }
+        return generation;
+    }
+
+    /**
+     * Applies all complete operations of the journal to the trains.
+     * An incomplete last record, of an operation that was being recorded during a crash, is ignored.
+     *
+     * @param journal the journal file
+     * @param trains  the trains by the loc number of their engine, as they were when the journal was started
+     * @throws IllegalStateException if the file is not a journal or the journal does not match the trains
+     */
+    public static void replay(Path journal, Map<Integer, Train> trains) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (generationOf(buffer) < 0) {
+                throw new IllegalStateException("%s is not a train journal".formatted(journal));
+            }
+            long end = endOfRecords(buffer);
+            buffer.position(HEADER_BYTES);
+            while (buffer.position() < end) {
+                byte kind = buffer.get();
+                Train train = trainOf(trains, buffer.getInt());
+                boolean replayed = switch (kind) {
+                    case ATTACH -> train.attachToRear(getSequence(buffer, trains));
+                    case INSERT -> {
+                        int position = buffer.getInt();
+                        yield train.insertAtPosition(position, getSequence(buffer, trains));
+                    }
+                    case MOVE -> train.moveOneWagon(buffer.getInt(), trainOf(trains, buffer.getInt()));
+                    case SPLIT -> train.splitAtPosition(buffer.getInt(), trainOf(trains, buffer.getInt()));
+                    case REVERSE -> {
+                        train.reverse();
+                        yield true;
+                    }
+                    default -> throw new IllegalStateException("Unknown journal record %d".formatted(kind));
+                };
+                if (!replayed) {
+                    throw new IllegalStateException("The journal does not match the train of %s".formatted(train.getEngine()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the journal " + journal, e);
+        }
+    }
+
+    /**
+     * Reads the generation number of a journal.
+     *
+     * @param journal the journal file
+     * @return the generation number of the snapshot that the journal continues, or -1 if the file is not a journal
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static long generationOf(Path journal) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            return generationOf(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_BYTES)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the journal " + journal, e);
+        }
+    }
+
+    /**
+     * @return the generation number in the header of the journal, or -1 if the buffer holds no journal
+     */
+    private static long generationOf(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) return -1;
+        return buffer.getLong(4);
+    }
+
+    /**
+     * @return the position after the last complete record of the journal
+     */
+    private static long endOfRecords(ByteBuffer buffer) {
+        int position = HEADER_BYTES;
+        while (position < buffer.limit()) {
+            // the sequence length of an attach or insert is only read if that part of the record is complete
+            int size = switch (buffer.get(position)) {
+                case ATTACH -> position + 14 > buffer.limit() ? -1
+                        : 14 + TrainSnapshot.WAGON_BYTES * buffer.getInt(position + 10);
+                case INSERT -> position + 18 > buffer.limit() ? -1
+                        : 18 + TrainSnapshot.WAGON_BYTES * buffer.getInt(position + 14);
+                case MOVE, SPLIT -> 13;
+                case REVERSE -> 5;
+                default -> 0;
+            };
+            if (size <= 0 || position + size > buffer.limit()) break;
+            position += size;
+        }
+        return position;
+    }
+
+    /**
+     * Reserves room for a record at the end of the journal.
+     *
+     * @return the buffer to write the record into
+     */
+    private ByteBuffer reserve(int size) {
+        if (region.remaining() < size) {
+            mapRegion(regionStart + region.position(), Math.max(REGION_SIZE, size));
+        }
+        return region;
+    }
+
+    private void mapRegion(long start, int size) {
+        try {
+            if (region != null) region.force();
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            regionStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot extend the journal", e);
+        }
+    }
+
+    /**
+     * @return the train of the journal that pulls the given wagon, or null if the wagon is not on any of them
+     */
+    private Train sourceOf(Wagon wagon) {
+        if (wagon == null) return null;
+        // an indexed train is known by its wagons, other trains have to be searched
+        if (wagon.train != null) return trains.get(locNumberOf(wagon.train)) == wagon.train ? wagon.train : null;
+        for (Train train : trains.values()) {
+            if (!train.isIndexed() && train.findWagonById(wagon.getId()) == wagon) return train;
+        }
+        return null;
+    }
+
+    /**
+     * @return the wagons to be recorded for a sequence: only the head wagon if it comes from a train,
+     * otherwise all wagons of the loose sequence
+     */
+    private static List<Wagon> sequenceOf(Wagon head, Train source) {
+        List<Wagon> sequence = new ArrayList<>();
+        for (Wagon wagon = head; wagon != null && (source == null || sequence.isEmpty()); wagon = wagon.getNextWagon()) {
+            sequence.add(wagon);
+        }
+        return sequence;
+    }
+
+    private static void putSequence(ByteBuffer record, Train source, List<Wagon> sequence) {
+        record.put((byte) (source == null ? 0 : 1))
+                .putInt(source == null ? 0 : locNumberOf(source))
+                .putInt(sequence.size());
+        for (Wagon wagon : sequence) {
+            TrainSnapshot.putWagon(record, wagon);
+        }
+    }
+
+    /**
+     * Reads a recorded sequence, which is either taken from its train or built from the recorded wagons.
+     *
+     * @return the head wagon of the sequence
+     */
+    private static Wagon getSequence(ByteBuffer buffer, Map<Integer, Train> trains) {
+        boolean fromTrain = buffer.get() != 0;
+        int sourceLocNumber = buffer.getInt();
+        int length = buffer.getInt();
+        Wagon head = null, last = null;
+        for (int i = 0; i < length; i++) {
+            Wagon wagon = TrainSnapshot.getWagon(buffer);
+            if (last == null) head = wagon;
+            else last.attachTail(wagon);
+            last = wagon;
+        }
+        if (!fromTrain) return head;
+
+        Wagon onTrain = trainOf(trains, sourceLocNumber).findWagonById(head.getId());
+        if (onTrain == null) {
+            throw new IllegalStateException("%s is not on the train of [Loc-%d]".formatted(head, sourceLocNumber));
+        }
+        return onTrain;
+    }
+
+    private static Train trainOf(Map<Integer, Train> trains, int locNumber) {
+        Train train = trains.get(locNumber);
+        if (train == null) {
+            throw new IllegalStateException("The journal refers to [Loc-%d], which is not one of the trains".formatted(locNumber));
+        }
+        return train;
+    }
+
+    private static int locNumberOf(Train train) {
+        return train.getEngine().getLocNumber();
+    }
+}
@@ -0,0 +1,185 @@
+package models;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compact binary snapshot of the compositions of a set of trains, which is written and read through memory-mapped files.
+ * Per train the snapshot holds the locomotive, origin, destination, whether the train is indexed
+ * and the ordered wagons with their id and number of seats or max weight.
+ * Every snapshot has a generation number, which is raised by every checkpoint of a TrainJournal,
+ * such that a journal can be matched with the snapshot it continues.
+ * Changes after a snapshot are kept in a TrainJournal.
+ */
+public class TrainSnapshot {
+    private static final int MAGIC = 0x54524E53;    // "TRNS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 20;     // magic, version, generation and number of trains
+    static final int WAGON_BYTES = 9;               // kind, id and number of seats or max weight
+
+    private static final byte PASSENGER = 1;
+    private static final byte FREIGHT = 2;
+
+    private TrainSnapshot() {
+    }
+
+    /**
+     * Writes the compositions of the trains to the file as the first snapshot, of generation 0.
+     *
+     * @param file   the snapshot file
+     * @param trains the trains, each identified by the loc number of its engine
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void write(Path file, Collection<Train> trains) {
+        write(file, 0, trains);
+    }
+
+    /**
+     * Writes the compositions of the trains to the file, replacing any previous content.
+     *
+     * @param file       the snapshot file
+     * @param generation the generation number of the snapshot
+     * @param trains     the trains, each identified by the loc number of its engine
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void write(Path file, long generation, Collection<Train> trains) {
+        long size = HEADER_BYTES;
+        for (Train train : trains) {
+            size += 13 + encodedSize(train.getOrigin()) + encodedSize(train.getDestination())
+                    + (long) WAGON_BYTES * train.getNumberOfWagons();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(generation).putInt(trains.size());
+            for (Train train : trains) {
+                buffer.putInt(train.getEngine().getLocNumber())
+                        .putInt(train.getEngine().getMaxWagons())
+                        .put((byte) (train.isIndexed() ? 1 : 0));
+                putString(buffer, train.getOrigin());
+                putString(buffer, train.getDestination());
+                buffer.putInt(train.getNumberOfWagons());
+                for (Wagon wagon : train) {
+                    putWagon(buffer, wagon);
+                }
+            }
+            buffer.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Reads the trains of a snapshot.
+     *
+     * @param file the snapshot file
+     * @return the trains of the snapshot by the loc number of their engine, in the order they were written
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a snapshot
+     */
+    public static Map<Integer, Train> read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            getGeneration(buffer, file);
+
+            Map<Integer, Train> trains = new LinkedHashMap<>();
+            int numberOfTrains = buffer.getInt();
+            for (int t = 0; t < numberOfTrains; t++) {
+                Locomotive engine = new Locomotive(buffer.getInt(), buffer.getInt());
+                boolean indexed = buffer.get() != 0;
+                String origin = getString(buffer);
+                String destination = getString(buffer);
+                Train train = new Train(engine, origin, destination, indexed);
+
+                // link the wagons directly and hand the sequence to the train at once
+                int numberOfWagons = buffer.getInt();
+                Wagon first = null, last = null;
+                for (int w = 0; w < numberOfWagons; w++) {
+                    Wagon wagon = getWagon(buffer);
+                    if (last == null) first = wagon;
+                    else last.attachTail(wagon);
+                    last = wagon;
+                }
+                train.setFirstWagon(first);
+                trains.put(engine.getLocNumber(), train);
+            }
+            return trains;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Reads the generation number of a snapshot.
+     *
+     * @param file the snapshot file
+     * @return the generation number of the snapshot
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a snapshot
+     */
+    public static long generationOf(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return getGeneration(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_BYTES)), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Reads the header of a snapshot, up to the number of trains.
+     *
+     * @return the generation number of the snapshot
+     */
+    private static long getGeneration(ByteBuffer buffer, Path file) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalStateException("%s is not a train snapshot".formatted(file));
+        }
+        return buffer.getLong();
+    }
+
+    static void putWagon(ByteBuffer buffer, Wagon wagon) {
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            buffer.put(PASSENGER).putInt(wagon.getId()).putInt(passengerWagon.getNumberOfSeats());
+        } else {
+            buffer.put(FREIGHT).putInt(wagon.getId()).putInt(((FreightWagon) wagon).getMaxWeight());
+        }
+    }
+
+    static Wagon getWagon(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        int id = buffer.getInt();
+        int capacity = buffer.getInt();
+        return kind == PASSENGER ? new PassengerWagon(id, capacity) : new FreightWagon(id, capacity);
+    }
+
+    private static int encodedSize(String text) {
+        return 4 + (text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String text) {
+        if (text == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -8,6 +8,9 @@ public abstract class Wagon {
     private Wagon previousWagon;    // another wagon that is prepended at the front of this wagon
     // a.k.a. the predecessor of this wagon in a sequence
     // set to null if no predecessor is connected
+    Train train;                    // the indexed train that this wagon is registered with
+    // set to null if the wagon is not part of an indexed train
+    // if that train is flipped, nextWagon and previousWagon are swapped in the direction of the train
 
 
     // representation invariant propositions:
@@ -31,7 +34,7 @@ public abstract class Wagon {
      * @return The next wagon.
      */
     public Wagon getNextWagon() {
-        return nextWagon;
+        return isFlipped() ? previousWagon : nextWagon;
     }
 
     /**
@@ -39,7 +42,7 @@ public abstract class Wagon {
      * @return The previous wagon.
      */
     public Wagon getPreviousWagon() {
-        return previousWagon;
+        return isFlipped() ? nextWagon : previousWagon;
     }
 
     /**
@@ -50,6 +53,7 @@ public abstract class Wagon {
         if (nextWagon == this) {
             throw new IllegalArgumentException("Cannot attach a wagon to itself");
         }
+        straighten();
         this.nextWagon = nextWagon;
     }
 
@@ -61,6 +65,7 @@ public abstract class Wagon {
         if (previousWagon == this) {
             throw new IllegalArgumentException("Cannot attach a wagon to itself");
         }
+        straighten();
         this.previousWagon = previousWagon;
     }
 
@@ -68,14 +73,14 @@ public abstract class Wagon {
      * @return whether this wagon has a wagon appended at the tail
      */
     public boolean hasNextWagon() {
-        return this.nextWagon != null;
+        return getNextWagon() != null;
     }
 
     /**
      * @return whether this wagon has a wagon prepended at the front
      */
     public boolean hasPreviousWagon() {
-        return this.previousWagon != null;
+        return getPreviousWagon() != null;
     }
 
     /**
@@ -85,8 +90,12 @@ public abstract class Wagon {
      * @return the last wagon
      */
     public Wagon getLastWagonAttached() {
-        if (nextWagon == null) return this;
-        return nextWagon.getLastWagonAttached();
+        // iterative, long trains would overflow the stack on recursion
+        Wagon wagon = this;
+        while (wagon.hasNextWagon()) {
+            wagon = wagon.getNextWagon();
+        }
+        return wagon;
     }
 
     /**
@@ -94,8 +103,11 @@ public abstract class Wagon {
      * @return The first wagon of this sequence.
      */
     public Wagon getFirstWagonAttached() {
-        if (previousWagon == null) return this;
-        return previousWagon.getFirstWagonAttached();
+        Wagon wagon = this;
+        while (wagon.hasPreviousWagon()) {
+            wagon = wagon.getPreviousWagon();
+        }
+        return wagon;
     }
 
     /**
@@ -103,10 +115,11 @@ public abstract class Wagon {
      * including this wagon itself.
      */
     public int getSequenceLength() {
-        // TODO traverse the sequence and find its length
-        if (!hasNextWagon()) return 1;
-
-        return 1 + nextWagon.getSequenceLength();
+        int length = 1;
+        for (Wagon wagon = getNextWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            length++;
+        }
+        return length;
     }
 
 
@@ -125,7 +138,10 @@ public abstract class Wagon {
     public void attachTail(Wagon tail) {
         if (tail == this) {
             throw new IllegalArgumentException("Cannot attach a wagon to itself");
-        } else if (hasNextWagon()) {
+        }
+        straighten();
+        tail.straighten();
+        if (hasNextWagon()) {
             throw new IllegalStateException("%s is already pulling %s".formatted(this.toString(), this.nextWagon.toString()));
         } else if (tail.hasPreviousWagon()) {
             throw new IllegalStateException("%s has already been attached to %s".formatted(tail.toString(), tail.getPreviousWagon().toString()));
@@ -133,6 +149,8 @@ public abstract class Wagon {
 
         this.nextWagon = tail;
         tail.previousWagon = this;
+
+        if (train != null) train.tailAttached(tail);
     }
 
     /**
@@ -142,6 +160,7 @@ public abstract class Wagon {
      * or <code>null</code> if it had no wagons attached to its tail.
      */
     public Wagon detachTail() {
+        straighten();
         if (!hasNextWagon()) return null;
 
         Wagon detachedTail = nextWagon;
@@ -149,6 +168,8 @@ public abstract class Wagon {
         nextWagon.setPreviousWagon(null);
         setNextWagon(null);
 
+        if (train != null) train.tailDetached(this, detachedTail);
+
         return detachedTail;
     }
 
@@ -160,6 +181,7 @@ public abstract class Wagon {
      * or <code>null</code> if it had no previousWagon.
      */
     public Wagon detachFront() {
+        straighten();
         if (!hasPreviousWagon()) return null;
 
         Wagon detachedFront = previousWagon;
@@ -167,6 +189,8 @@ public abstract class Wagon {
         previousWagon.setNextWagon(null);
         setPreviousWagon(null);
 
+        if (train != null) train.tailDetached(detachedFront, this);
+
         return detachedFront;
     }
 
@@ -192,19 +216,16 @@ public abstract class Wagon {
      * and reconnects its tail to the wagon in front of it, if any.
      */
     public void removeFromSequence() {
-        // Attach this wagons tail to the wagon in front
-        if (hasPreviousWagon() && hasNextWagon()) {
-            this.nextWagon.reAttachTo(previousWagon);
-        } else {
-            this.detachTail();
-        }
+        straighten();
+        // Only this wagon leaves the indexed train, its neighbours stay
+        if (train != null) train.wagonRemoved(this);
 
-        // Attach this wagons front to this wagons tail
-        if (hasNextWagon() && hasPreviousWagon()) {
-            this.previousWagon.reAttachTo(nextWagon);
-        } else {
-            this.detachFront();
-        }
+        // Reconnect the wagon in front with this wagons tail
+        if (hasPreviousWagon()) this.previousWagon.nextWagon = this.nextWagon;
+        if (hasNextWagon()) this.nextWagon.previousWagon = this.previousWagon;
+
+        this.previousWagon = null;
+        this.nextWagon = null;
     }
 
 
@@ -216,6 +237,7 @@ public abstract class Wagon {
      * @return the new start Wagon of the reversed sequence (with is the former last Wagon of the original sequence)
      */
     public Wagon reverseSequence() {
+        straighten();
         // Safe the original last wagon to return it
         Wagon originaLastWagon = getLastWagonAttached();
 
@@ -237,11 +259,29 @@ public abstract class Wagon {
 
 
         // If detatched wagons exist, re-attach the reversed sequence as a tail
-        if (detachedWagons != null) detachedWagons.attachTail(this.previousWagon);
+        if (detachedWagons != null) detachedWagons.attachTail(originaLastWagon);
+
+        // The reversed sequence ran up to the end of the indexed train, if any
+        if (train != null) train.sequenceReversed(this, originaLastWagon);
 
         return originaLastWagon;
     }
 
+    /**
+     * @return whether the links of this wagon run against the direction of its indexed train
+     */
+    private boolean isFlipped() {
+        return train != null && train.isFlipped();
+    }
+
+    /**
+     * Lays the links of the indexed train of this wagon, if any, in the direction of the train again,
+     * before they are changed.
+     */
+    private void straighten() {
+        if (train != null) train.straighten();
+    }
+
     @Override
     public String toString() {
         return "[Wagon-%d]".formatted(this.id);
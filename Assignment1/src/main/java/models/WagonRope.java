@@ -0,0 +1,240 @@
+package models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A positional index over the wagons of a train, implemented as an implicit treap (a randomised balanced rope).
+ * The position of a wagon is the number of wagons in front of it, so the tree is ordered without any keys.
+ * Position lookup, insertion, removal and splitting take O(log n) expected time,
+ * reversal is done lazily in O(1).
+ */
+class WagonRope {
+
+    private static final class Node {
+        final Wagon wagon;
+        final int priority;
+        Node left, right, parent;
+        int size = 1;                   // the number of nodes in the subtree of this node
+        boolean reversed;               // the subtree of this node still has to be mirrored
+
+        Node(Wagon wagon, int priority) {
+            this.wagon = wagon;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<Integer, Node> nodes = new HashMap<>();   // the node of every wagon in the rope by wagon id
+    private Node root;
+    private int seed = 0x2545F491;      // state of the xorshift generator for the priorities
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    /**
+     * @param index the position of the wagon, starting at 0
+     * @return the wagon at the given position
+     */
+    public Wagon get(int index) {
+        Node node = root;
+        while (node != null) {
+            push(node);
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.wagon;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param wagon a wagon in the rope
+     * @return the position of the wagon, starting at 0, or -1 if the wagon is not in the rope
+     */
+    public int indexOf(Wagon wagon) {
+        Node node = nodes.get(wagon.getId());
+        if (node == null || node.wagon != wagon) return -1;
+
+        pushPathFromRoot(node);
+        int index = size(node.left);
+        while (node.parent != null) {
+            if (node == node.parent.right) index += size(node.parent.left) + 1;
+            node = node.parent;
+        }
+        return index;
+    }
+
+    /**
+     * Inserts the sequence of wagons from head up to and including last at the given position.
+     *
+     * @param index the position of the head wagon after insertion, 0 <= index <= size()
+     * @param head  the first wagon of the sequence
+     * @param last  the last wagon of the sequence
+     */
+    public void insert(int index, Wagon head, Wagon last) {
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], build(head, last)), parts[1]);
+        root.parent = null;
+    }
+
+    /**
+     * Removes all wagons from the given position onwards.
+     *
+     * @param index the position of the first wagon to be removed
+     */
+    public void truncate(int index) {
+        Node[] parts = split(root, index);
+        root = parts[0];
+        if (root != null) root.parent = null;
+        forget(parts[1]);
+    }
+
+    /**
+     * Removes a single wagon from the rope.
+     *
+     * @param wagon the wagon to be removed
+     */
+    public void remove(Wagon wagon) {
+        int index = indexOf(wagon);
+        if (index < 0) return;
+
+        Node[] front = split(root, index);
+        Node[] rear = split(front[1], 1);
+        root = merge(front[0], rear[1]);
+        if (root != null) root.parent = null;
+        nodes.remove(wagon.getId());
+    }
+
+    /**
+     * Reverses the order of all wagons in the rope.
+     */
+    public void reverse() {
+        if (root != null) root.reversed = !root.reversed;
+    }
+
+    /**
+     * Builds a treap of the sequence from head to last in linear time,
+     * by keeping the right spine of the tree on a stack.
+     */
+    private Node build(Wagon head, Wagon last) {
+        Node[] spine = new Node[64];
+        int top = 0;
+        for (Wagon wagon = head; ; wagon = wagon.getNextWagon()) {
+            Node node = new Node(wagon, nextPriority());
+            nodes.put(wagon.getId(), node);
+
+            Node popped = null;
+            while (top > 0 && spine[top - 1].priority < node.priority) {
+                popped = spine[--top];
+                update(popped);
+            }
+            node.left = popped;
+            if (top > 0) spine[top - 1].right = node;
+            if (top == spine.length) spine = Arrays.copyOf(spine, 2 * top);
+            spine[top++] = node;
+
+            if (wagon == last) break;
+        }
+        while (top > 1) update(spine[--top]);
+        update(spine[0]);
+        return spine[0];
+    }
+
+    /**
+     * Splits the tree into the first count nodes and the remaining nodes.
+     */
+    private Node[] split(Node node, int count) {
+        if (node == null) return new Node[]{null, null};
+        push(node);
+        if (size(node.left) >= count) {
+            Node[] parts = split(node.left, count);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            if (parts[0] != null) parts[0].parent = null;
+            node.parent = null;
+            return parts;
+        } else {
+            Node[] parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            if (parts[1] != null) parts[1].parent = null;
+            node.parent = null;
+            return parts;
+        }
+    }
+
+    private Node merge(Node front, Node rear) {
+        if (front == null) return rear;
+        if (rear == null) return front;
+        if (front.priority > rear.priority) {
+            push(front);
+            front.right = merge(front.right, rear);
+            update(front);
+            return front;
+        } else {
+            push(rear);
+            rear.left = merge(front, rear.left);
+            update(rear);
+            return rear;
+        }
+    }
+
+    /**
+     * Recomputes the size of a node and links its children back to it.
+     */
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) node.left.parent = node;
+        if (node.right != null) node.right.parent = node;
+    }
+
+    /**
+     * Mirrors the subtree of a node if that is still pending, and passes the pending reversal on to its children.
+     */
+    private static void push(Node node) {
+        if (!node.reversed) return;
+        Node left = node.left;
+        node.left = node.right;
+        node.right = left;
+        if (node.left != null) node.left.reversed = !node.left.reversed;
+        if (node.right != null) node.right.reversed = !node.right.reversed;
+        node.reversed = false;
+    }
+
+    private static void pushPathFromRoot(Node node) {
+        if (node.parent != null) pushPathFromRoot(node.parent);
+        push(node);
+    }
+
+    private void forget(Node node) {
+        if (node == null) return;
+        nodes.remove(node.wagon.getId());
+        forget(node.left);
+        forget(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
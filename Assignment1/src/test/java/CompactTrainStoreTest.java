@@ -0,0 +1,457 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static models.CompactTrainStore.NONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the TrainTest scenarios against the array-backed CompactTrainStore, one test per scenario by the same name.
+ * Every scenario applies, with wagons referred to by their id instead of by their object,
+ * except for these parts, which the store cannot express:
+ * - T23_checkNulls: trains are numbers returned by addTrain, so there is no null train to split or move towards;
+ *   the null wagon is covered by an id that is not in the store.
+ * - T24_ShouldIterateAndStreamTheWagons: the store has no Iterable, Spliterator or Stream of wagon objects,
+ *   its wagons are only visited by the single flyweight WagonView, which is what the scenario iterates instead.
+ * T23_checkInvalidWagons covers the rules of the store itself for wagons that are added or linked outside a train.
+ */
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class CompactTrainStoreTest {
+    CompactTrainStore store;
+    int passengerTrain, trainWithoutWagons, freightTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        store = new CompactTrainStore();
+
+        passengerTrain = store.addTrain(new Locomotive(24531, 8), "Amsterdam", "Paris");
+        store.addPassengerWagon(8001, 32);
+        store.addPassengerWagon(8002, 32);
+        store.addPassengerWagon(8003, 18);
+        store.addPassengerWagon(8004, 44);
+        store.addPassengerWagon(8005, 44);
+        store.addPassengerWagon(8006, 44);
+        store.addPassengerWagon(8007, 40);
+        for (int id = 8001; id < 8007; id++) {
+            store.attachTail(id, id + 1);
+        }
+        assertTrue(store.attachToRear(passengerTrain, 8001));
+
+        trainWithoutWagons = store.addTrain(new Locomotive(29123, 7), "Amsterdam", "London");
+
+        freightTrain = store.addTrain(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        store.addFreightWagon(9001, 50000);
+        store.addFreightWagon(9002, 40000);
+        store.addFreightWagon(9003, 30000);
+        store.attachTail(9001, 9002);
+        store.attachTail(9002, 9003);
+        assertTrue(store.attachToRear(freightTrain, 9001));
+
+        store.addPassengerWagon(8011, 50);
+        store.addPassengerWagon(8012, 50);
+        store.addPassengerWagon(8013, 50);
+        store.attachTail(8011, 8012);
+        store.attachTail(8012, 8013);
+        store.addFreightWagon(9011, 60000);
+        store.addFreightWagon(9012, 60000);
+        store.attachTail(9011, 9012);
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        for (int train = 0; train < store.getNumberOfTrains(); train++) {
+            checkRepresentationInvariant(store, train);
+        }
+    }
+
+    public static void checkRepresentationInvariant(CompactTrainStore store, int train) {
+        int count = 0;
+        int last = NONE;
+        CompactTrainStore.WagonView wagon = store.view(train);
+        boolean passenger = wagon.isValid() && wagon.isPassengerWagon();
+        for (; wagon.isValid(); wagon.moveToNext()) {
+            assertEquals(passenger, wagon.isPassengerWagon(),
+                    String.format("Wagon %s should be of the same type as the other wagons in the train", wagon));
+            assertEquals(train, store.findTrainOfWagon(wagon.getId()));
+            last = wagon.getId();
+            count++;
+        }
+        assertEquals(count, store.getNumberOfWagons(train));
+        assertEquals(last, store.getLastWagonId(train));
+        assertThat("Number of wagons in the train should not exceed engine capacity",
+                store.getNumberOfWagons(train), lessThanOrEqualTo(store.getEngine(train).getMaxWagons()));
+    }
+
+    /**
+     * @return a view positioned at the wagon with the given id on the train, or null if the train does not pull it
+     */
+    private CompactTrainStore.WagonView findWagonById(int train, int wagonId) {
+        for (CompactTrainStore.WagonView wagon = store.view(train); wagon.isValid(); wagon.moveToNext()) {
+            if (wagon.getId() == wagonId) return wagon;
+        }
+        return null;
+    }
+
+    private List<Integer> wagonIdsOf(int train) {
+        List<Integer> ids = new ArrayList<>();
+        for (CompactTrainStore.WagonView wagon = store.view(train); wagon.isValid(); wagon.moveToNext()) {
+            ids.add(wagon.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void T11_APassengerTrainsIsNoAFreightTrain() {
+        passengerTrain = store.addTrain(new Locomotive(13, 13), "Here", "There");
+        store.addPassengerWagon(1313, 1300);
+        assertTrue(store.attachToRear(passengerTrain, 1313));
+        assertTrue(store.isPassengerTrain(passengerTrain));
+        assertFalse(store.isFreightTrain(passengerTrain));
+    }
+
+    @Test
+    public void T11_AFreightTrainIsNotAPassengerTrain() {
+        freightTrain = store.addTrain(new Locomotive(13, 13), "Here", "There");
+        store.addFreightWagon(1313, 1300);
+        assertTrue(store.attachToRear(freightTrain, 1313));
+        assertFalse(store.isPassengerTrain(freightTrain));
+        assertTrue(store.isFreightTrain(freightTrain));
+    }
+
+    @Test
+    public void T11_ATrainWithoutWagonsIsNotAPassengerOrAFreightTrain() {
+        assertFalse(store.isPassengerTrain(trainWithoutWagons));
+        assertFalse(store.isFreightTrain(trainWithoutWagons));
+    }
+
+    @Test
+    public void T12_ATrainWithoutWagonsShouldBeEmpty() {
+        assertFalse(store.hasWagons(trainWithoutWagons));
+        assertEquals(0, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(NONE, store.getLastWagonId(trainWithoutWagons));
+    }
+
+    @Test
+    public void T12_ATrainShouldKnowItsNumberOfWagons() {
+        assertTrue(store.hasWagons(passengerTrain));
+        assertEquals(7, store.getNumberOfWagons(passengerTrain));
+        assertEquals(8007, store.getLastWagonId(passengerTrain));
+        assertTrue(store.hasWagons(freightTrain));
+        assertEquals(3, store.getNumberOfWagons(freightTrain));
+        assertEquals(9003, store.getLastWagonId(freightTrain));
+    }
+
+    @Test
+    public void T13_checkCumulativeWagonPropertiesOnTrain() {
+        assertEquals(254, store.getTotalNumberOfSeats(passengerTrain));
+        assertEquals(0, store.getTotalNumberOfSeats(trainWithoutWagons));
+        assertEquals(0, store.getTotalNumberOfSeats(freightTrain));
+        assertEquals(0, store.getTotalMaxWeight(passengerTrain));
+        assertEquals(0, store.getTotalMaxWeight(trainWithoutWagons));
+        assertEquals(120000, store.getTotalMaxWeight(freightTrain));
+
+        // check final wagon
+        assertEquals(40, findWagonById(passengerTrain, store.getLastWagonId(passengerTrain)).getNumberOfSeats());
+        assertEquals(30000, findWagonById(freightTrain, store.getLastWagonId(freightTrain)).getMaxWeight());
+
+        // check toString
+        assertTrue(store.toString(freightTrain).indexOf(" from Amsterdam to Berlin") > 0);
+    }
+
+    @Test
+    public void T14_findWagonOnTrainAtPosition() {
+        assertEquals(8001, store.findWagonIdAtPosition(passengerTrain, 1), "First wagon should be found");
+        assertEquals(8002, store.findWagonIdAtPosition(passengerTrain, 2), "Second wagon should be found");
+        assertEquals(8007, store.findWagonIdAtPosition(passengerTrain, 7), "Last wagon should be found");
+        assertEquals(NONE, store.findWagonIdAtPosition(passengerTrain, 8), "No wagon should be found beyond last position");
+        assertEquals(NONE, store.findWagonIdAtPosition(passengerTrain, 0), "No wagon should be found before first position");
+        assertEquals(NONE, store.findWagonIdAtPosition(trainWithoutWagons, 1), "No wagon should be found beyond last position");
+
+        assertEquals(NONE, store.findWagonIdAtPosition(passengerTrain, 9), "No wagon should be found beyond last position");
+        assertEquals(NONE, store.findWagonIdAtPosition(passengerTrain, -1), "No wagon should be found before first position");
+        assertEquals(NONE, store.findWagonIdAtPosition(trainWithoutWagons, 2), "No wagon should be found beyond last position");
+        assertEquals(NONE, store.findWagonIdAtPosition(trainWithoutWagons, 0), "No wagon should be found before first position");
+        assertEquals(NONE, store.findWagonIdAtPosition(trainWithoutWagons, -1), "No wagon should be found before first position");
+    }
+
+    @Test
+    public void T15_findWagonOnTrainById() {
+        assertEquals(50000, findWagonById(freightTrain, 9001).getMaxWeight());
+        assertEquals(40000, findWagonById(freightTrain, 9002).getMaxWeight());
+        assertEquals(30000, findWagonById(freightTrain, 9003).getMaxWeight());
+        assertNull(findWagonById(freightTrain, 9000));
+        assertNull(findWagonById(trainWithoutWagons, 8000));
+        assertEquals(freightTrain, store.findTrainOfWagon(9002));
+        assertEquals(NONE, store.findTrainOfWagon(9011), "a loose wagon is not pulled by any train");
+    }
+
+    @Test
+    public void T16_CantAttachMoreWagonsThanTrainsCapacity() {
+        assertFalse(store.canAttach(passengerTrain, 8011));
+        assertFalse(store.canAttach(passengerTrain, 8012));
+        assertTrue(store.canAttach(passengerTrain, 8013));
+        assertTrue(store.canAttach(freightTrain, 9011));
+
+        assertEquals(7, store.getNumberOfWagons(passengerTrain));
+        assertEquals(3, store.getNumberOfWagons(freightTrain));
+    }
+
+    @Test
+    public void T16_CantAttachWrongTypeWagons() {
+        assertFalse(store.canAttach(freightTrain, 8013));
+        assertFalse(store.canAttach(passengerTrain, 9012));
+        assertTrue(store.canAttach(trainWithoutWagons, 8013));
+        assertTrue(store.canAttach(trainWithoutWagons, 9012));
+        assertTrue(store.canAttach(trainWithoutWagons, 8011));
+        assertTrue(store.canAttach(trainWithoutWagons, 9011));
+        assertEquals(0, store.getNumberOfWagons(trainWithoutWagons));
+    }
+
+    @Test
+    public void T16_CantAttachWagonsAlreadyOnTheTrain() {
+        assertFalse(store.canAttach(freightTrain, 9001));
+        assertFalse(store.canAttach(freightTrain, 9002));
+        assertFalse(store.canAttach(passengerTrain, 8001));
+        assertFalse(store.canAttach(passengerTrain, 8002));
+    }
+
+    @Test
+    public void T17_CanAttachToRear() {
+        assertTrue(store.attachToRear(trainWithoutWagons, store.getLastWagonId(passengerTrain)),
+                "can attach a single wagon to an empty train");
+        assertEquals(8007, store.getFirstWagonId(trainWithoutWagons),
+                "attachToRear should disconnect and reattach the given head wagon");
+        assertTrue(store.attachToRear(trainWithoutWagons, store.getLastWagonId(passengerTrain)),
+                "can attach a single wagon at the rear of a train");
+        assertEquals(8006, store.getLastWagonId(trainWithoutWagons),
+                "attachToRear should disconnect and reattach the given head wagon to the rear");
+
+        assertTrue(store.attachToRear(trainWithoutWagons, 8002),
+                "can attach a sequence at at the rear of a train");
+        assertEquals(8002, store.findWagonIdAtPosition(trainWithoutWagons, 3),
+                "attachToRear should disconnect and reattach the head wagon to the rear");
+        assertEquals(8003, store.findWagonIdAtPosition(trainWithoutWagons, 4),
+                "attachToRear should disconnect and reattach the complete sequence to the rear");
+        assertEquals(8004, store.findWagonIdAtPosition(trainWithoutWagons, 5),
+                "attachToRear should disconnect and reattach the complete sequence to the rear");
+        assertEquals(8005, store.getLastWagonId(trainWithoutWagons),
+                "attachToRear should disconnect and reattach the complete sequence to the rear");
+
+        assertFalse(store.attachToRear(trainWithoutWagons, 8002),
+                "cannot attachToRear a wagon that is already on the train");
+        assertEquals(6, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(1, store.getNumberOfWagons(passengerTrain));
+    }
+
+    @Test
+    public void T18_CanInsertAtFront() {
+        assertTrue(store.insertAtFront(freightTrain, 9011));
+        assertEquals(5, store.getNumberOfWagons(freightTrain));
+        assertEquals(9011, store.getFirstWagonId(freightTrain),
+                "insertAtFront should insert the first wagon at position 1");
+        assertEquals(9012, store.findWagonIdAtPosition(freightTrain, 2),
+                "insertAtFront should insert the second wagon at position 2");
+
+        assertFalse(store.insertAtFront(passengerTrain, 8011),
+                "Cannot insert 3 passenger wagons into a train with insufficient capacity");
+        assertFalse(store.insertAtFront(passengerTrain, 8012),
+                "Cannot insert 2 passenger wagons into a train with insufficient capacity");
+        assertTrue(store.insertAtFront(passengerTrain, 8013),
+                "Can insert 1 passenger wagon into a train with one more free space");
+        assertEquals(8, store.getNumberOfWagons(passengerTrain));
+        assertEquals(8013, store.getFirstWagonId(passengerTrain),
+                "insertAtFront should insert the wagons at position 1");
+
+        // the loose sequence of the first passenger wagon can only be inspected by attaching it
+        assertTrue(store.attachToRear(trainWithoutWagons, 8011));
+        assertEquals(2, store.getNumberOfWagons(trainWithoutWagons),
+                "insertAtFront should detach the wagons from its predecessors");
+    }
+
+    @Test
+    public void T18_CanInsertPassengerWagonsToEmptyTrainWithCapacity() {
+        assertTrue(store.insertAtFront(trainWithoutWagons, 8011));
+        assertEquals(3, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(8011, store.getFirstWagonId(trainWithoutWagons),
+                "insertAtFront should insert the wagons at position 1");
+
+        assertFalse(store.insertAtFront(trainWithoutWagons, 8011),
+                "cannot insert wagons on a train that are already there");
+        assertEquals(3, store.getNumberOfWagons(trainWithoutWagons));
+    }
+
+    @Test
+    public void T19_CanInsertAtAnyPosition() {
+        assertTrue(store.insertAtPosition(trainWithoutWagons, 1, store.getLastWagonId(passengerTrain)),
+                "can insert a single wagon at position 1 of empty train");
+        assertEquals(8007, store.getFirstWagonId(trainWithoutWagons),
+                "insertAtPosition should disconnect and insert the given head wagon");
+
+        assertTrue(store.insertAtPosition(trainWithoutWagons, 1, store.getLastWagonId(passengerTrain)),
+                "can insert a single wagon at position 1 of a train");
+        assertEquals(8006, store.getFirstWagonId(trainWithoutWagons),
+                "insertAtPosition should disconnect and insert the given head wagon");
+
+        assertTrue(store.insertAtPosition(trainWithoutWagons, 3, store.getLastWagonId(passengerTrain)),
+                "can insert a single wagon immediately after the last wagon in a train");
+        assertEquals(8005, store.findWagonIdAtPosition(trainWithoutWagons, 3),
+                "insertAtPosition should disconnect and insert the given head wagon");
+
+        assertTrue(store.insertAtPosition(trainWithoutWagons, 3, store.getLastWagonId(passengerTrain)),
+                "can insert a single wagon immediately before the last wagon in a train");
+        assertEquals(8004, store.findWagonIdAtPosition(trainWithoutWagons, 3),
+                "insertAtPosition should disconnect and insert the given head wagon");
+
+        assertTrue(store.insertAtPosition(trainWithoutWagons, 3, 8002),
+                "can insert a sequence at a mid position in a train");
+        assertEquals(8002, store.findWagonIdAtPosition(trainWithoutWagons, 3),
+                "insertAtPosition should disconnect and insert the given head wagon");
+        assertEquals(8003, store.findWagonIdAtPosition(trainWithoutWagons, 4),
+                "insertAtPosition should disconnect and insert the given head wagon and its successors");
+        assertEquals(8004, store.findWagonIdAtPosition(trainWithoutWagons, 5),
+                "insertAtPosition should disconnect and insert the given head wagon and its successors and reattach the previous wagon at given position");
+
+        assertFalse(store.insertAtPosition(trainWithoutWagons, 2, 8002),
+                "cannot insert a wagon that is already on the train");
+
+        assertEquals(6, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(1, store.getNumberOfWagons(passengerTrain));
+    }
+
+    @Test
+    public void T20_ShouldSplitTrainCorrectly() {
+        assertTrue(store.splitAtPosition(passengerTrain, 5, trainWithoutWagons));
+        assertEquals(3, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(4, store.getNumberOfWagons(passengerTrain));
+
+        assertTrue(store.splitAtPosition(passengerTrain, 4, trainWithoutWagons),
+                "can split the last wagon of a train");
+        assertEquals(4, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(3, store.getNumberOfWagons(passengerTrain));
+
+        assertFalse(store.splitAtPosition(passengerTrain, 4, trainWithoutWagons),
+                "cannot split from beyond the last wagon of a train");
+        assertFalse(store.splitAtPosition(passengerTrain, 3, freightTrain),
+                "cannot split towards an incompatible train");
+
+        assertTrue(store.splitAtPosition(passengerTrain, 1, trainWithoutWagons),
+                "can split at the first wagon of a train");
+        assertEquals(7, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(0, store.getNumberOfWagons(passengerTrain));
+
+        assertFalse(store.splitAtPosition(passengerTrain, 1, trainWithoutWagons),
+                "cannot split from an empty train");
+    }
+
+    @Test
+    public void T20_CantSplitAnEmptyTrain() {
+        assertFalse(store.splitAtPosition(trainWithoutWagons, 1, passengerTrain));
+    }
+
+    @Test
+    public void T20_CantSplitTowardsAFullTrain() {
+        assertTrue(store.attachToRear(trainWithoutWagons, 8011));
+        assertFalse(store.splitAtPosition(trainWithoutWagons, 1, passengerTrain),
+                "cannot split 3 wagons towards an almost full passenger train");
+        assertFalse(store.splitAtPosition(trainWithoutWagons, 2, passengerTrain),
+                "cannot split 2 wagons towards an almost full passenger train");
+        assertEquals(3, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(7, store.getNumberOfWagons(passengerTrain));
+        assertTrue(store.splitAtPosition(trainWithoutWagons, 3, passengerTrain),
+                "can split 1 wagon towards a passenger train with one more capacity");
+        assertEquals(2, store.getNumberOfWagons(trainWithoutWagons));
+        assertEquals(8, store.getNumberOfWagons(passengerTrain));
+        assertEquals(8013, store.getLastWagonId(passengerTrain),
+                "can split the last wagon of one train towards the last available position of another train");
+    }
+
+    @Test
+    public void T21_ShouldMoveOneWagonCorrectly() {
+        assertTrue(store.moveOneWagon(passengerTrain, 8002, trainWithoutWagons),
+                "can move one wagon from mid-sequence to an empty train");
+        assertEquals(1, store.getNumberOfWagons(trainWithoutWagons),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+        assertEquals(6, store.getNumberOfWagons(passengerTrain),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+        assertEquals(8002, store.getFirstWagonId(trainWithoutWagons));
+
+        assertTrue(store.moveOneWagon(passengerTrain, 8001, trainWithoutWagons),
+                "can move the first wagon to another train");
+        assertEquals(2, store.getNumberOfWagons(trainWithoutWagons),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+        assertEquals(5, store.getNumberOfWagons(passengerTrain),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+        assertEquals(8003, store.getFirstWagonId(passengerTrain),
+                "the first two wagons of the train have both been moved");
+
+        assertTrue(store.moveOneWagon(passengerTrain, 8007, trainWithoutWagons),
+                "can move the last wagon to another train");
+        assertEquals(3, store.getNumberOfWagons(trainWithoutWagons),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+        assertEquals(4, store.getNumberOfWagons(passengerTrain),
+                "one single wagon has been disconnected from its sequence and moved thereafter");
+
+        assertFalse(store.moveOneWagon(passengerTrain, 8006, freightTrain),
+                "should not move a wagon to an incompatible train");
+        assertEquals(4, store.getNumberOfWagons(passengerTrain));
+        assertEquals(3, store.getNumberOfWagons(freightTrain));
+    }
+
+    @Test
+    public void T22_checkReverseTrain() {
+        store.reverse(passengerTrain);
+        assertEquals(7, store.getNumberOfWagons(passengerTrain));
+        assertEquals(8007, store.findWagonIdAtPosition(passengerTrain, 1));
+        assertEquals(8006, store.findWagonIdAtPosition(passengerTrain, 2));
+        assertEquals(8005, store.findWagonIdAtPosition(passengerTrain, 3));
+        assertEquals(8001, store.findWagonIdAtPosition(passengerTrain, 7));
+        assertEquals(8001, store.getLastWagonId(passengerTrain));
+
+        store.reverse(trainWithoutWagons);
+        assertEquals(0, store.getNumberOfWagons(trainWithoutWagons));
+    }
+
+    @Test
+    public void T23_checkNulls() {
+        assertThrows(IllegalArgumentException.class, () -> store.addTrain(null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> new Locomotive(1, -1));
+        // an id that is not in the store stands in for the null wagon
+        assertFalse(store.canAttach(trainWithoutWagons, 1234));
+        assertFalse(store.attachToRear(trainWithoutWagons, 1234));
+        assertFalse(store.insertAtFront(passengerTrain, 1234));
+        assertFalse(store.moveOneWagon(passengerTrain, 1234, trainWithoutWagons));
+    }
+
+    @Test
+    public void T23_checkInvalidWagons() {
+        assertThrows(IllegalArgumentException.class, () -> store.addPassengerWagon(8001, 10));
+        assertThrows(IllegalStateException.class, () -> store.attachTail(8011, 8013));
+        assertThrows(IllegalStateException.class, () -> store.attachTail(8007, 8011),
+                "wagons of a train must be attached through the train");
+        assertFalse(store.moveOneWagon(trainWithoutWagons, 8001, freightTrain));
+    }
+
+    @Test
+    public void T24_ShouldIterateAndStreamTheWagons() {
+        assertEquals(List.of(8001, 8002, 8003, 8004, 8005, 8006, 8007), wagonIdsOf(passengerTrain));
+        assertFalse(store.view(trainWithoutWagons).isValid());
+
+        int seats = 0;
+        for (CompactTrainStore.WagonView wagon = store.view(passengerTrain); wagon.isValid(); wagon.moveToNext()) {
+            seats += wagon.getNumberOfSeats();
+        }
+        assertEquals(store.getTotalNumberOfSeats(passengerTrain), seats);
+
+        store.reverse(passengerTrain);
+        assertEquals(8007, store.view(passengerTrain).getId());
+        assertTrue(store.attachToRear(passengerTrain, 8013));
+        assertEquals(List.of(8007, 8006, 8005, 8004, 8003, 8002, 8001, 8013), wagonIdsOf(passengerTrain));
+        assertEquals(8001, findWagonById(passengerTrain, 8013).moveToPrevious().getId());
+    }
+}
@@ -0,0 +1,110 @@
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all TrainTest and IndexedTrainTest scenarios against trains of one fleet, and checks the registry of the fleet
+ */
+public class FleetTrainTest extends IndexedTrainTest {
+    private Fleet fleet;
+
+    @Override
+    protected Train createTrain(Locomotive engine, String origin, String destination) {
+        // all trains of a test scenario, including the ones it creates itself, run in one fleet
+        if (fleet == null) fleet = new Fleet();
+        return new Train(engine, origin, destination, fleet);
+    }
+
+    @AfterEach
+    public void checkFleetInvariants() {
+        int numberOfWagons = 0;
+        for (Train train : new Train[]{passengerTrain, trainWithoutWagons, freightTrain}) {
+            checkFleetInvariant(train);
+            numberOfWagons += train.getNumberOfWagons();
+        }
+        assertTrue(fleet.getNumberOfWagons() >= numberOfWagons, "The fleet should register all wagons of its trains");
+    }
+
+    public static void checkFleetInvariant(Train train) {
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            final Wagon registered = wagon;
+            assertSame(wagon, train.getFleet().findWagonById(wagon.getId()),
+                    () -> String.format("Wagon %s should be registered with the fleet", registered));
+            assertSame(train, train.getFleet().findTrainOfWagon(wagon.getId()),
+                    () -> String.format("Wagon %s should be located on %s", registered, train));
+        }
+    }
+
+    @Override
+    @Test
+    public void T30_ShouldBuildLongTrainsInLinearTime() {
+        final int length = 50000;
+        Train longTrain = createTrain(new Locomotive(1, length), "Amsterdam", "Rotterdam");
+        for (int i = 0; i < length; i++) {
+            // the wagons 8001 up to 8007 and 9001 up to 9003 run on other trains of the fleet already
+            boolean duplicate = (i >= 8001 && i <= 8007) || (i >= 9001 && i <= 9003);
+            assertEquals(!duplicate, longTrain.attachToRear(new FreightWagon(i, 1000)));
+        }
+        assertEquals(length - 10, longTrain.getNumberOfWagons());
+        assertTrue(longTrain.moveOneWagon(100, freightTrain));
+        assertSame(freightTrain, fleet.findTrainOfWagon(100));
+        checkIndexInvariant(longTrain);
+        checkFleetInvariant(longTrain);
+    }
+
+    @Test
+    public void T33_FleetShouldRejectDuplicateWagonIds() {
+        Wagon duplicate = new PassengerWagon(8001, 50);
+        assertFalse(trainWithoutWagons.canAttach(duplicate), "8001 already runs on the passenger train");
+        assertFalse(trainWithoutWagons.attachToRear(duplicate));
+        assertFalse(trainWithoutWagons.insertAtFront(duplicate));
+
+        Wagon sequence = new PassengerWagon(8021, 50);
+        sequence.attachTail(new PassengerWagon(8003, 50));
+        assertFalse(trainWithoutWagons.attachToRear(sequence), "a duplicate at the tail of the sequence");
+        assertFalse(trainWithoutWagons.hasWagons());
+
+        // a wagon that runs on the fleet may move between its trains
+        assertTrue(passengerTrain.moveOneWagon(8001, trainWithoutWagons));
+        assertSame(trainWithoutWagons, fleet.findTrainOfWagon(8001));
+        assertTrue(trainWithoutWagons.attachToRear(passengerTrain.findWagonById(8004)));
+        assertSame(trainWithoutWagons, fleet.findTrainOfWagon(8007));
+        assertEquals(2, passengerTrain.getNumberOfWagons());
+
+        // once it has left the fleet, its id is free again
+        Wagon wagon8007 = trainWithoutWagons.findWagonById(8007);
+        wagon8007.removeFromSequence();
+        assertNull(fleet.findWagonById(8007));
+        assertTrue(passengerTrain.attachToRear(new PassengerWagon(8007, 50)));
+        assertEquals(10, fleet.getNumberOfWagons());
+    }
+
+    @Test
+    public void T33_FleetShouldLocateWagonsOfManyTrains() {
+        Fleet largeFleet = new Fleet();
+        final int numberOfTrains = 100, length = 10000;
+        Train[] trains = new Train[numberOfTrains];
+        for (int t = 0; t < numberOfTrains; t++) {
+            trains[t] = new Train(new Locomotive(t, 2 * length), "Yard", "Track " + t, largeFleet);
+            Wagon first = new FreightWagon(t * length, 1000);
+            Wagon last = first;
+            for (int w = 1; w < length; w++) {
+                Wagon wagon = new FreightWagon(t * length + w, 1000);
+                last.attachTail(wagon);
+                last = wagon;
+            }
+            trains[t].setFirstWagon(first);
+        }
+        assertEquals(numberOfTrains * length, largeFleet.getNumberOfWagons());
+
+        assertTrue(trains[3].splitAtPosition(length / 2 + 1, trains[7]));
+        assertSame(trains[7], largeFleet.findTrainOfWagon(3 * length + length / 2));
+        assertSame(trains[3], largeFleet.findTrainOfWagon(3 * length + length / 2 - 1));
+        assertFalse(trains[5].attachToRear(new FreightWagon(7 * length, 1000)));
+        assertEquals(numberOfTrains * length, largeFleet.getNumberOfWagons());
+        checkFleetInvariant(trains[3]);
+        checkFleetInvariant(trains[7]);
+    }
+}
@@ -0,0 +1,113 @@
+import models.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreightPlannerTest {
+    private final FreightPlanner planner = new FreightPlanner("Rotterdam", "Duisburg");
+
+    @Test
+    public void shouldMoveTheHeaviestWagonsWithinTheCapacityOfTheEngines() {
+        List<FreightWagon> wagons = new ArrayList<>();
+        int[] weights = {10, 80, 30, 70, 20, 60, 50, 40};
+        for (int i = 0; i < weights.length; i++) {
+            wagons.add(new FreightWagon(9001 + i, weights[i]));
+        }
+        List<Train> trains = planner.plan(List.of(new Locomotive(1, 2), new Locomotive(2, 3)), wagons);
+
+        assertEquals(2, trains.size());
+        assertEquals(2, trains.get(0).getNumberOfWagons());
+        assertEquals(3, trains.get(1).getNumberOfWagons());
+        assertEquals(80 + 70 + 60 + 50 + 40, trains.get(0).getTotalMaxWeight() + trains.get(1).getTotalMaxWeight());
+        assertEquals(150, trains.get(0).getTotalMaxWeight(), "both trains should carry the same weight");
+        assertEquals("Rotterdam", trains.get(0).getOrigin());
+        for (Train train : trains) {
+            IndexedTrainTest.checkIndexInvariant(train);
+            TrainTest.checkRepresentationInvariant(train);
+        }
+    }
+
+    @Test
+    public void shouldTakeWagonsOutOfTheirSequence() {
+        FreightWagon heavy = new FreightWagon(9001, 1000);
+        FreightWagon light = new FreightWagon(9002, 10);
+        FreightWagon heaviest = new FreightWagon(9003, 2000);
+        heavy.attachTail(light);
+        light.attachTail(heaviest);
+
+        List<Train> trains = planner.plan(List.of(new Locomotive(1, 2)), List.of(heavy, light, heaviest));
+
+        assertEquals("[Wagon-9003][Wagon-9001] with 2 wagons from Rotterdam to Duisburg", trains.get(0).toString());
+        assertFalse(light.hasNextWagon(), "the light wagon should stay behind on its own");
+        assertFalse(light.hasPreviousWagon());
+    }
+
+    @Test
+    public void shouldTakeWagonsFromTheirTrains() {
+        Train plainTrain = new Train(new Locomotive(2, 5), "Rotterdam", "Antwerp");
+        Train indexedTrain = new Train(new Locomotive(3, 5), "Rotterdam", "Antwerp", true);
+        FreightWagon heaviest = new FreightWagon(9001, 3000);
+        FreightWagon light = new FreightWagon(9002, 10);
+        FreightWagon heavy = new FreightWagon(9003, 1000);
+        FreightWagon heavier = new FreightWagon(9004, 2000);
+        plainTrain.attachToRear(heaviest);
+        plainTrain.attachToRear(light);
+        indexedTrain.attachToRear(heavy);
+        indexedTrain.attachToRear(heavier);
+
+        List<Train> trains = planner.plan(List.of(new Locomotive(1, 3)), List.of(heaviest, light, heavy, heavier),
+                List.of(plainTrain));
+
+        assertEquals("[Wagon-9001][Wagon-9004][Wagon-9003] with 3 wagons from Rotterdam to Duisburg", trains.get(0).toString());
+        assertEquals("[Wagon-9002] with 1 wagons from Rotterdam to Antwerp", plainTrain.toString(),
+                "the first wagon of the plain train should be taken through the train");
+        assertFalse(indexedTrain.hasWagons());
+        TrainTest.checkRepresentationInvariant(plainTrain);
+        TrainTest.checkRepresentationInvariant(indexedTrain);
+        IndexedTrainTest.checkIndexInvariant(indexedTrain);
+        IndexedTrainTest.checkIndexInvariant(trains.get(0));
+    }
+
+    @Test
+    public void shouldRejectDuplicateWagonIds() {
+        List<FreightWagon> wagons = List.of(new FreightWagon(9001, 10), new FreightWagon(9001, 20));
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(List.of(new Locomotive(1, 2)), wagons));
+    }
+
+    @Test
+    public void shouldBalanceAHundredThousandWagonsInSeconds() {
+        final int numberOfWagons = 100000;
+        Random random = new Random(12);
+        List<FreightWagon> wagons = new ArrayList<>();
+        for (int i = 0; i < numberOfWagons; i++) {
+            wagons.add(new FreightWagon(i, 1000 + random.nextInt(60000)));
+        }
+        // engines of the same capacity can carry the same weight
+        List<Locomotive> locomotives = new ArrayList<>();
+        int capacity = 0;
+        for (int i = 0; capacity < numberOfWagons - 5000; i++) {
+            locomotives.add(new Locomotive(i, 50));
+            capacity += locomotives.get(i).getMaxWagons();
+        }
+
+        List<Train> trains = assertTimeout(Duration.ofSeconds(10), () -> planner.plan(locomotives, wagons));
+
+        int moved = 0;
+        long minimum = Long.MAX_VALUE, maximum = 0;
+        for (Train train : trains) {
+            assertTrue(train.getNumberOfWagons() <= train.getEngine().getMaxWagons());
+            moved += train.getNumberOfWagons();
+            minimum = Math.min(minimum, train.getTotalMaxWeight());
+            maximum = Math.max(maximum, train.getTotalMaxWeight());
+        }
+        assertEquals(capacity, moved, "all engines should run at capacity");
+        assertTrue(maximum - minimum <= 1000,
+                "the weights of the trains should hardly differ, but ranged from %d to %d"
+                        .formatted(minimum, maximum));
+    }
+}
@@ -0,0 +1,120 @@
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all TrainTest scenarios against indexed trains, and checks that their index stays consistent
+ */
+public class IndexedTrainTest extends TrainTest {
+
+    @Override
+    protected Train createTrain(Locomotive engine, String origin, String destination) {
+        return new Train(engine, origin, destination, true);
+    }
+
+    @AfterEach
+    public void checkIndexInvariants() {
+        checkIndexInvariant(passengerTrain);
+        checkIndexInvariant(trainWithoutWagons);
+        checkIndexInvariant(freightTrain);
+    }
+
+    public static void checkIndexInvariant(Train train) {
+        assertTrue(train.isIndexed());
+        int count = 0, seats = 0, weight = 0;
+        Wagon last = null;
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            assertSame(wagon, train.findWagonById(wagon.getId()),
+                    String.format("Wagon %s should be found by its id in the index", wagon));
+            if (wagon instanceof PassengerWagon passengerWagon) seats += passengerWagon.getNumberOfSeats();
+            if (wagon instanceof FreightWagon freightWagon) weight += freightWagon.getMaxWeight();
+            last = wagon;
+            count++;
+        }
+        assertEquals(count, train.getNumberOfWagons(), "The cached number of wagons should match the sequence");
+        assertSame(last, train.getLastWagonAttached(), "The cached last wagon should match the sequence");
+        assertEquals(seats, train.getTotalNumberOfSeats(), "The running total of seats should match the sequence");
+        assertEquals(weight, train.getTotalMaxWeight(), "The running total of max weight should match the sequence");
+    }
+
+    @Test
+    public void T30_WagonOperationsShouldMaintainTheIndex() {
+        Wagon wagon8004 = passengerTrain.findWagonById(8004);
+        wagon8004.removeFromSequence();
+        assertNull(passengerTrain.findWagonById(8004));
+        assertEquals(6, passengerTrain.getNumberOfWagons());
+        assertEquals(210, passengerTrain.getTotalNumberOfSeats());
+        checkIndexInvariant(passengerTrain);
+
+        passengerTrain.getLastWagonAttached().attachTail(wagon8004);
+        assertSame(wagon8004, passengerTrain.getLastWagonAttached());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        checkIndexInvariant(passengerTrain);
+
+        passengerWagon8002.detachTail();
+        assertEquals(2, passengerTrain.getNumberOfWagons());
+        assertNull(passengerTrain.findWagonById(8005));
+        assertSame(passengerWagon8002, passengerTrain.getLastWagonAttached());
+        assertEquals(64, passengerTrain.getTotalNumberOfSeats());
+        checkIndexInvariant(passengerTrain);
+
+        freightWagon9001.reverseSequence();
+        assertEquals(9003, freightTrain.getFirstWagon().getId());
+        assertSame(freightWagon9001, freightTrain.getLastWagonAttached());
+        checkIndexInvariant(freightTrain);
+    }
+
+    @Test
+    public void T32_ReversedTrainShouldBehaveAsReversedUntilChanged() {
+        passengerTrain.reverse();
+        assertEquals(8007, passengerTrain.getFirstWagon().getId());
+        assertSame(passengerWagon8001, passengerTrain.getLastWagonAttached());
+        assertEquals(8006, passengerTrain.findWagonAtPosition(2).getId());
+        assertSame(passengerWagon8002, passengerTrain.findWagonAtPosition(6));
+        assertSame(passengerWagon8001, passengerWagon8002.getNextWagon());
+        assertFalse(passengerWagon8001.hasNextWagon());
+        assertEquals(5, passengerTrain.findWagonById(8005).getSequenceLength());
+        checkIndexInvariant(passengerTrain);
+
+        // operations of the train and of its wagons follow the reversed direction
+        assertTrue(passengerTrain.moveOneWagon(8007, trainWithoutWagons));
+        assertEquals("[Wagon-8006][Wagon-8005][Wagon-8004][Wagon-8003][Wagon-8002][Wagon-8001] with 6 wagons from Amsterdam to Paris",
+                passengerTrain.toString());
+        passengerTrain.reverse();
+        assertSame(passengerWagon8002, passengerWagon8001.detachTail());
+        assertEquals("[Wagon-8001] with 1 wagons from Amsterdam to Paris", passengerTrain.toString());
+        checkIndexInvariant(passengerTrain);
+
+        final int length = 50000;
+        Train longTrain = createTrain(new Locomotive(1, length), "Amsterdam", "Rotterdam");
+        for (int i = 0; i < length; i++) {
+            longTrain.attachToRear(new FreightWagon(i, 1000));
+        }
+        for (int i = 0; i < length; i++) {
+            longTrain.reverse();
+            assertEquals(i % 2 == 0 ? length - 1 : 0, longTrain.getFirstWagon().getId());
+        }
+        assertEquals(0, longTrain.findWagonAtPosition(1).getId());
+        checkIndexInvariant(longTrain);
+    }
+
+    @Test
+    public void T30_ShouldBuildLongTrainsInLinearTime() {
+        final int length = 50000;
+        Train longTrain = createTrain(new Locomotive(1, length), "Amsterdam", "Rotterdam");
+        for (int i = 0; i < length; i++) {
+            assertTrue(longTrain.attachToRear(new FreightWagon(i, 1000)));
+        }
+        int moved = 0;
+        for (int i = 0; i < length; i += 100) {
+            if (longTrain.moveOneWagon(i, freightTrain)) moved++;
+        }
+        assertEquals(47, moved, "the freight train can pull 47 more wagons");
+        assertEquals(50, freightTrain.getNumberOfWagons());
+        assertEquals(length - 47, longTrain.getNumberOfWagons());
+        checkIndexInvariant(longTrain);
+        checkIndexInvariant(freightTrain);
+    }
+}
@@ -0,0 +1,92 @@
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all TrainTest and IndexedTrainTest scenarios against trains with a positional index
+ */
+public class PositionIndexedTrainTest extends IndexedTrainTest {
+
+    @Override
+    protected Train createTrain(Locomotive engine, String origin, String destination) {
+        Train train = super.createTrain(engine, origin, destination);
+        train.enablePositionIndex();
+        return train;
+    }
+
+    @AfterEach
+    public void checkPositionInvariants() {
+        checkPositionInvariant(passengerTrain);
+        checkPositionInvariant(trainWithoutWagons);
+        checkPositionInvariant(freightTrain);
+    }
+
+    public static void checkPositionInvariant(Train train) {
+        assertTrue(train.isPositionIndexed());
+        int position = 1;
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            assertSame(wagon, train.findWagonAtPosition(position),
+                    String.format("Wagon %s should be found at position %d", wagon, position));
+            position++;
+        }
+        assertNull(train.findWagonAtPosition(position));
+    }
+
+    @Test
+    public void T31_PositionalEditsShouldMatchAPlainTrain() {
+        final int length = 2000;
+        Random random = new Random(31);
+        Train indexed = createTrain(new Locomotive(1, 2 * length), "Here", "There");
+        Train plain = new Train(new Locomotive(2, 2 * length), "Here", "There");
+        Train indexedYard = createTrain(new Locomotive(3, 2 * length), "Here", "Yard");
+        Train plainYard = new Train(new Locomotive(4, 2 * length), "Here", "Yard");
+        for (int i = 0; i < length; i++) {
+            indexed.attachToRear(new PassengerWagon(i, i % 80));
+            plain.attachToRear(new PassengerWagon(i, i % 80));
+        }
+
+        for (int step = 0; step < 5000; step++) {
+            int size = plain.getNumberOfWagons();
+            switch (random.nextInt(5)) {
+                case 0 -> {
+                    int id = length + step;
+                    int position = 1 + random.nextInt(size + 1);
+                    assertEquals(plain.insertAtPosition(position, new PassengerWagon(id, 10)),
+                            indexed.insertAtPosition(position, new PassengerWagon(id, 10)));
+                }
+                case 1 -> {
+                    int id = random.nextInt(length + step);
+                    assertEquals(plain.moveOneWagon(id, plainYard), indexed.moveOneWagon(id, indexedYard));
+                }
+                case 2 -> {
+                    if (random.nextInt(20) == 0) {
+                        int position = Math.max(1, size - random.nextInt(10));
+                        assertEquals(plain.splitAtPosition(position, plainYard),
+                                indexed.splitAtPosition(position, indexedYard));
+                    }
+                }
+                case 3 -> {
+                    plain.reverse();
+                    indexed.reverse();
+                }
+                default -> {
+                    int position = 1 + random.nextInt(size + 1);
+                    Wagon expected = plain.findWagonAtPosition(position);
+                    Wagon actual = indexed.findWagonAtPosition(position);
+                    assertEquals(expected == null ? null : expected.getId(), actual == null ? null : actual.getId());
+                }
+            }
+        }
+
+        assertEquals(plain.toString(), indexed.toString());
+        assertEquals(plainYard.toString(), indexedYard.toString());
+        checkPositionInvariant(indexed);
+        checkPositionInvariant(indexedYard);
+        checkIndexInvariant(indexed);
+        checkIndexInvariant(indexedYard);
+    }
+}
@@ -0,0 +1,90 @@
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RailYardTest {
+    private static final int NUMBER_OF_TRAINS = 16;
+    private static final int WAGONS_PER_TRAIN = 50;
+
+    RailYard yard;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        yard = new RailYard();
+        for (int t = 0; t < NUMBER_OF_TRAINS; t++) {
+            Train train = new Train(new Locomotive(1000 + t, NUMBER_OF_TRAINS * WAGONS_PER_TRAIN),
+                    "Yard", "Track " + t, t % 2 == 0);
+            for (int w = 0; w < WAGONS_PER_TRAIN; w++) {
+                train.attachToRear(new FreightWagon(t * WAGONS_PER_TRAIN + w, 1000));
+            }
+            yard.addTrain(train);
+        }
+    }
+
+    @Test
+    public void shouldMoveAndSplitBetweenTrains() {
+        assertTrue(yard.moveOneWagon(1000, 3, 1001));
+        assertEquals(51, yard.withTrain(1001, Train::getNumberOfWagons));
+        assertTrue(yard.splitAtPosition(1000, 10, 1002));
+        assertEquals(9, yard.withTrain(1000, Train::getNumberOfWagons));
+        assertEquals(90, yard.withTrain(1002, Train::getNumberOfWagons));
+        assertFalse(yard.moveOneWagon(1000, 3, 1001), "the wagon has already been moved");
+        assertFalse(yard.moveOneWagon(1001, 3, 1001), "a wagon cannot move to its own train");
+        assertEquals(2, yard.getCompletedOperations());
+        assertEquals(2, yard.getRejectedOperations());
+        assertThrows(IllegalArgumentException.class, () -> yard.moveOneWagon(1000, 1, 999));
+        assertThrows(IllegalArgumentException.class, () -> yard.addTrain(new Train(new Locomotive(1000, 1), "A", "B")));
+    }
+
+    @Test
+    public void shouldStayConsistentUnderConcurrentShunting() throws InterruptedException {
+        final int workers = 8;
+        final int operationsPerWorker = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        for (int w = 0; w < workers; w++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operationsPerWorker; i++) {
+                    int from = 1000 + random.nextInt(NUMBER_OF_TRAINS);
+                    int to = 1000 + random.nextInt(NUMBER_OF_TRAINS);
+                    if (random.nextInt(10) == 0) {
+                        yard.splitAtPosition(from, 1 + random.nextInt(WAGONS_PER_TRAIN), to);
+                    } else {
+                        yard.moveOneWagon(from, random.nextInt(NUMBER_OF_TRAINS * WAGONS_PER_TRAIN), to);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals((long) workers * operationsPerWorker,
+                yard.getCompletedOperations() + yard.getRejectedOperations());
+        assertTrue(yard.getCompletedOperations() > 0, "some of the random operations should have completed");
+        assertTrue(yard.getThroughput() > 0);
+        assertTrue(yard.toString().startsWith("Rail yard with %d trains: %d operations completed"
+                .formatted(NUMBER_OF_TRAINS, yard.getCompletedOperations())));
+
+        // every wagon is still pulled by exactly one train
+        Set<Integer> wagonIds = new HashSet<>();
+        for (Train train : yard.getTrains()) {
+            TrainTest.checkRepresentationInvariant(train);
+            if (train.isIndexed()) IndexedTrainTest.checkIndexInvariant(train);
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                assertTrue(wagonIds.add(wagon.getId()), "Wagon " + wagon + " should be in one train only");
+            }
+        }
+        assertEquals(NUMBER_OF_TRAINS * WAGONS_PER_TRAIN, wagonIds.size());
+    }
+}
@@ -0,0 +1,79 @@
+import models.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares applying the steps of a yard plan one by one against executing them as one ShuntingPlan.
+ */
+public class ShuntingPlanEfficiencyMeasuring {
+
+    private final static int REPEATS = 10;
+    private final static int NUMBER_OF_TRAINS = 20;
+    private final static int NUMBER_OF_STEPS = 500;
+
+    public static void main(String[] args) {
+        for (int wagonsPerTrain = 100; wagonsPerTrain <= 10000; wagonsPerTrain *= 10) {
+            for (boolean indexed : new boolean[]{false, true}) {
+                System.out.printf("=== %d steps on %d %s trains of %d wagons%n",
+                        NUMBER_OF_STEPS, NUMBER_OF_TRAINS, indexed ? "indexed" : "plain", wagonsPerTrain);
+
+                double oneByOne = 0, asPlan = 0;
+                for (int j = 1; j <= REPEATS; j++) {
+                    List<Train> trains = setupTrains(wagonsPerTrain, indexed);
+                    System.gc();
+                    long started = System.nanoTime();
+                    for (int step = 0; step < NUMBER_OF_STEPS; step++) {
+                        trains.get(step % NUMBER_OF_TRAINS).moveOneWagon(wagonIdOfStep(step, wagonsPerTrain),
+                                trains.get((step + 1) % NUMBER_OF_TRAINS));
+                    }
+                    oneByOne += System.nanoTime() - started;
+
+                    trains = setupTrains(wagonsPerTrain, indexed);
+                    System.gc();
+                    started = System.nanoTime();
+                    ShuntingPlan plan = new ShuntingPlan();
+                    for (int step = 0; step < NUMBER_OF_STEPS; step++) {
+                        plan.moveOneWagon(trains.get(step % NUMBER_OF_TRAINS), wagonIdOfStep(step, wagonsPerTrain),
+                                trains.get((step + 1) % NUMBER_OF_TRAINS));
+                    }
+                    if (!plan.execute()) throw new IllegalStateException("The plan should have been valid");
+                    asPlan += System.nanoTime() - started;
+                }
+
+                System.out.printf("-- One by one: %.4f s, as plan: %.4f s%n%n",
+                        getSecondsFromNano(oneByOne / REPEATS), getSecondsFromNano(asPlan / REPEATS));
+            }
+        }
+    }
+
+    /**
+     * @return a wagon that is still on the train of the step when the step is applied
+     */
+    private static int wagonIdOfStep(int step, int wagonsPerTrain) {
+        int train = step % NUMBER_OF_TRAINS;
+        return train * wagonsPerTrain + step / NUMBER_OF_TRAINS;
+    }
+
+    private static List<Train> setupTrains(int wagonsPerTrain, boolean indexed) {
+        List<Train> trains = new ArrayList<>();
+        for (int t = 0; t < NUMBER_OF_TRAINS; t++) {
+            Train train = new Train(new Locomotive(t, 2 * wagonsPerTrain), "Yard", "Track " + t, indexed);
+            // link the wagons directly, attaching one by one to a plain train takes quadratic time
+            Wagon first = new FreightWagon(t * wagonsPerTrain, 1000);
+            Wagon last = first;
+            for (int w = 1; w < wagonsPerTrain; w++) {
+                Wagon wagon = new FreightWagon(t * wagonsPerTrain + w, 1000);
+                last.attachTail(wagon);
+                last = wagon;
+            }
+            train.setFirstWagon(first);
+            trains.add(train);
+        }
+        return trains;
+    }
+
+    private static double getSecondsFromNano(double nano) {
+        return nano / 1000000000;
+    }
+}
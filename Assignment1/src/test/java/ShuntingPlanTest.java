@@ -0,0 +1,112 @@
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShuntingPlanTest {
+    Train passengerTrain, trainWithoutWagons, freightTrain;
+    Wagon passengerWagon1, freightWagon1;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        passengerTrain = new Train(new Locomotive(24531, 8), "Amsterdam", "Paris", true);
+        for (int id = 8001; id <= 8007; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 40));
+        }
+        trainWithoutWagons = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        for (int id = 9001; id <= 9003; id++) {
+            freightTrain.attachToRear(new FreightWagon(id, 50000));
+        }
+
+        passengerWagon1 = new PassengerWagon(8011, 50);
+        passengerWagon1.attachTail(new PassengerWagon(8012, 50));
+        freightWagon1 = new FreightWagon(9011, 60000);
+    }
+
+    @Test
+    public void shouldApplyAValidPlan() {
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 5, trainWithoutWagons)
+                .moveOneWagon(passengerTrain, 8001, trainWithoutWagons)
+                .insertAtFront(trainWithoutWagons, passengerWagon1)
+                .attachToRear(freightTrain, freightWagon1)
+                .insertAtPosition(passengerTrain, 2, passengerTrain.findWagonById(8001));
+
+        assertTrue(plan.validate());
+        assertTrue(plan.execute());
+        assertEquals("[Wagon-8002][Wagon-8001][Wagon-8003][Wagon-8004] with 4 wagons from Amsterdam to Paris",
+                passengerTrain.toString());
+        assertEquals(5, trainWithoutWagons.getNumberOfWagons());
+        assertSame(passengerWagon1, trainWithoutWagons.getFirstWagon());
+        assertEquals(4, freightTrain.getNumberOfWagons());
+        IndexedTrainTest.checkIndexInvariant(passengerTrain);
+    }
+
+    @Test
+    public void shouldRejectAnInvalidPlanWithoutChanges() {
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 2, trainWithoutWagons)
+                .insertAtFront(trainWithoutWagons, passengerWagon1);
+
+        assertFalse(plan.validate(), "the second step exceeds the capacity after the first step");
+        assertFalse(plan.execute());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertFalse(trainWithoutWagons.hasWagons());
+        assertEquals(2, passengerWagon1.getSequenceLength());
+
+        assertFalse(new ShuntingPlan().attachToRear(freightTrain, passengerWagon1).validate(),
+                "cannot attach passenger wagons to a freight train");
+        assertFalse(new ShuntingPlan().moveOneWagon(freightTrain, 8001, trainWithoutWagons).validate(),
+                "cannot move a wagon that is not on the train");
+    }
+
+    @Test
+    public void shouldRejectADuplicateWagonIdByValidation() {
+        String passengerTrainBefore = passengerTrain.toString();
+        // a distinct wagon that reuses an id of the passenger train, after the other steps have changed the train
+        Wagon duplicate = new PassengerWagon(8003, 10);
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 4, trainWithoutWagons)
+                .moveOneWagon(trainWithoutWagons, 8006, passengerTrain)
+                .attachToRear(passengerTrain, passengerWagon1)
+                .attachToRear(passengerTrain, duplicate);
+
+        assertFalse(plan.validate());
+        assertFalse(plan.execute());
+        assertEquals(passengerTrainBefore, passengerTrain.toString());
+        assertFalse(trainWithoutWagons.hasWagons());
+        assertFalse(passengerWagon1.hasPreviousWagon());
+    }
+
+    @Test
+    public void shouldRollBackWhenAStepThrows() {
+        String passengerTrainBefore = passengerTrain.toString();
+        // a wagon that passes validation, but breaks down while it is being attached
+        Wagon broken = new PassengerWagon(8021, 10) {
+            @Override
+            public Wagon detachFront() {
+                throw new IllegalStateException("broken coupling");
+            }
+        };
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 4, trainWithoutWagons)
+                .moveOneWagon(trainWithoutWagons, 8006, passengerTrain)
+                .attachToRear(passengerTrain, passengerWagon1)
+                .attachToRear(passengerTrain, broken);
+
+        assertTrue(plan.validate());
+        assertThrows(IllegalStateException.class, plan::execute);
+        assertEquals(passengerTrainBefore, passengerTrain.toString());
+        assertFalse(trainWithoutWagons.hasWagons());
+        assertFalse(passengerWagon1.hasPreviousWagon());
+        assertEquals(2, passengerWagon1.getSequenceLength());
+        assertFalse(broken.hasPreviousWagon());
+        IndexedTrainTest.checkIndexInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+    }
+}
@@ -0,0 +1,183 @@
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrainJournalTest {
+    @TempDir
+    Path directory;
+
+    Path snapshot, journal;
+    Map<Integer, Train> trains;
+    Train passengerTrain, trainWithoutWagons, freightTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        snapshot = directory.resolve("yard.snapshot");
+        journal = directory.resolve("yard.journal");
+
+        passengerTrain = new Train(new Locomotive(24531, 8), "Amsterdam", "Paris", true);
+        for (int id = 8001; id <= 8005; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 30 + id % 10));
+        }
+        trainWithoutWagons = new Train(new Locomotive(29123, 7), "Amsterdam", null);
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        for (int id = 9001; id <= 9003; id++) {
+            freightTrain.attachToRear(new FreightWagon(id, 10000 * (id % 10)));
+        }
+
+        trains = new LinkedHashMap<>();
+        for (Train train : new Train[]{passengerTrain, trainWithoutWagons, freightTrain}) {
+            trains.put(train.getEngine().getLocNumber(), train);
+        }
+    }
+
+    @Test
+    public void snapshotShouldRestoreAllTrains() {
+        TrainSnapshot.write(snapshot, trains.values());
+        Map<Integer, Train> restored = TrainSnapshot.read(snapshot);
+
+        assertEquals(trains.keySet(), restored.keySet());
+        assertSameTrains(trains, restored);
+        Train restoredPassengerTrain = restored.get(24531);
+        assertTrue(restoredPassengerTrain.isIndexed());
+        assertEquals(passengerTrain.getTotalNumberOfSeats(), restoredPassengerTrain.getTotalNumberOfSeats());
+        assertEquals(8, restoredPassengerTrain.getEngine().getMaxWagons());
+        assertNull(restored.get(29123).getDestination());
+        assertEquals(freightTrain.getTotalMaxWeight(), restored.get(63427).getTotalMaxWeight());
+        IndexedTrainTest.checkIndexInvariant(restoredPassengerTrain);
+    }
+
+    @Test
+    public void recoveryShouldReplayTheJournal() {
+        TrainSnapshot.write(snapshot, trains.values());
+        Wagon loose = new PassengerWagon(8011, 50);
+        loose.attachTail(new PassengerWagon(8012, 50));
+
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            assertTrue(operations.insertAtPosition(passengerTrain, 2, loose));
+            assertTrue(operations.splitAtPosition(passengerTrain, 5, trainWithoutWagons));
+            assertTrue(operations.moveOneWagon(passengerTrain, 8001, trainWithoutWagons));
+            operations.reverse(trainWithoutWagons);
+            assertFalse(operations.attachToRear(freightTrain, new PassengerWagon(8021, 10)), "not recorded");
+            assertTrue(operations.attachToRear(passengerTrain, trainWithoutWagons.findWagonById(8004)));
+        }
+        Map<Integer, Train> recovered = TrainJournal.recover(snapshot, journal);
+
+        assertSameTrains(trains, recovered);
+        assertEquals("[Wagon-8011][Wagon-8012][Wagon-8002][Wagon-8004][Wagon-8003] with 5 wagons from Amsterdam to Paris",
+                recovered.get(24531).toString());
+        IndexedTrainTest.checkIndexInvariant(recovered.get(24531));
+    }
+
+    @Test
+    public void journalShouldAppendAfterExistingOperations() {
+        TrainSnapshot.write(snapshot, trains.values());
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            operations.reverse(passengerTrain);
+        }
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            assertTrue(operations.moveOneWagon(passengerTrain, 8005, trainWithoutWagons));
+        }
+        assertSameTrains(trains, TrainJournal.recover(snapshot, journal));
+
+        TrainJournal.checkpoint(snapshot, journal, trains);
+        assertFalse(Files.exists(journal));
+        assertSameTrains(trains, TrainJournal.recover(snapshot, journal));
+    }
+
+    @Test
+    public void recoveryShouldIgnoreATornLastRecord() throws IOException {
+        TrainSnapshot.write(snapshot, trains.values());
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            operations.reverse(passengerTrain);
+            assertTrue(operations.moveOneWagon(passengerTrain, 8005, trainWithoutWagons));
+        }
+        // a crash while the move was being recorded: the header of 12 bytes, the reverse of 5 and 9 of the 13 bytes of the move
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(12 + 5 + 9);
+        }
+        Map<Integer, Train> recovered = TrainJournal.recover(snapshot, journal);
+        assertEquals("[Wagon-8005][Wagon-8004][Wagon-8003][Wagon-8002][Wagon-8001] with 5 wagons from Amsterdam to Paris",
+                recovered.get(24531).toString());
+        assertFalse(recovered.get(29123).hasWagons());
+
+        // the journal appends over the torn record
+        try (TrainJournal operations = new TrainJournal(journal, 0, recovered)) {
+            assertTrue(operations.moveOneWagon(recovered.get(24531), 8001, recovered.get(29123)));
+        }
+        assertSameTrains(recovered, TrainJournal.recover(snapshot, journal));
+        assertEquals("[Wagon-8001] with 1 wagons from Amsterdam to null", recovered.get(29123).toString());
+    }
+
+    @Test
+    public void recoveryShouldIgnoreTheJournalOfAnInterruptedCheckpoint() throws IOException {
+        TrainSnapshot.write(snapshot, trains.values());
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            operations.reverse(passengerTrain);
+            assertTrue(operations.attachToRear(passengerTrain, new PassengerWagon(8011, 50)));
+        }
+        // the files as a crash between the replacement of the snapshot and the deletion of the journal leaves them
+        Path previousJournal = directory.resolve("previous.journal");
+        Files.copy(journal, previousJournal);
+        long generation = TrainJournal.checkpoint(snapshot, journal, trains);
+        Files.move(previousJournal, journal, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(1, generation);
+        assertEquals(0, TrainJournal.generationOf(journal));
+
+        Map<Integer, Train> recovered = TrainJournal.recover(snapshot, journal);
+        assertSameTrains(trains, recovered);
+        assertEquals(6, recovered.get(24531).getNumberOfWagons(), "the operations of the journal are not applied twice");
+
+        // a journal of the new generation replaces the former journal
+        try (TrainJournal operations = new TrainJournal(journal, generation, recovered)) {
+            operations.reverse(recovered.get(24531));
+        }
+        assertEquals(generation, TrainJournal.generationOf(journal));
+        assertSameTrains(recovered, TrainJournal.recover(snapshot, journal));
+    }
+
+    @Test
+    public void journalShouldGrowBeyondOneRegion() {
+        final int length = 100000;
+        Train longTrain = new Train(new Locomotive(1, length), "Rotterdam", "Duisburg", true);
+        Train yard = new Train(new Locomotive(2, length), "Rotterdam", "Yard", true);
+        trains.put(1, longTrain);
+        trains.put(2, yard);
+        TrainSnapshot.write(snapshot, trains.values());
+
+        try (TrainJournal operations = new TrainJournal(journal, 0, trains)) {
+            for (int id = 0; id < length; id++) {
+                assertTrue(operations.attachToRear(longTrain, new FreightWagon(id, id)));
+            }
+            for (int id = 0; id < length; id += 2) {
+                assertTrue(operations.moveOneWagon(longTrain, id, yard));
+            }
+        }
+        assertTrue(journal.toFile().length() > (1 << 20));
+        Map<Integer, Train> recovered = TrainJournal.recover(snapshot, journal);
+
+        assertEquals(length / 2, recovered.get(1).getNumberOfWagons());
+        assertEquals(longTrain.getTotalMaxWeight(), recovered.get(1).getTotalMaxWeight());
+        assertSameTrains(trains, recovered);
+    }
+
+    private static void assertSameTrains(Map<Integer, Train> expected, Map<Integer, Train> actual) {
+        for (Map.Entry<Integer, Train> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().toString(), actual.get(entry.getKey()).toString());
+        }
+    }
+}
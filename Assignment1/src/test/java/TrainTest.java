@@ -1,7 +1,11 @@
 import models.*;
 import org.junit.jupiter.api.*;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -20,7 +24,7 @@ public class TrainTest {
     public void setup() {
         Locale.setDefault(Locale.ENGLISH);
         Locomotive rembrandt = new Locomotive(24531, 8);
-        passengerTrain = new Train(rembrandt, "Amsterdam", "Paris");
+        passengerTrain = createTrain(rembrandt, "Amsterdam", "Paris");
         Wagon wagon;
         passengerWagon8001 = (Wagon)(Object)new PassengerWagon(8001,32);
         passengerTrain.setFirstWagon(passengerWagon8001);
@@ -33,10 +37,10 @@ public class TrainTest {
         wagon.attachTail((Wagon)(Object)new PassengerWagon(8007,40));
 
         Locomotive vanGogh = new Locomotive(29123, 7);
-        trainWithoutWagons = new Train(vanGogh, "Amsterdam", "London");
+        trainWithoutWagons = createTrain(vanGogh, "Amsterdam", "London");
 
         Locomotive clusius = new Locomotive(63427, 50);
-        freightTrain = new Train(clusius, "Amsterdam", "Berlin");
+        freightTrain = createTrain(clusius, "Amsterdam", "Berlin");
         freightWagon9001 = (Wagon)(Object)new FreightWagon(9001,50000);
         freightTrain.setFirstWagon(freightWagon9001);
         freightWagon9002 = (Wagon)(Object)new FreightWagon(9002,40000);
@@ -53,6 +57,13 @@ public class TrainTest {
         freightWagon1.attachTail(freightWagon2);
     }
 
+    /**
+     * Creates the trains of the test scenarios, can be overridden to run the scenarios against another representation
+     */
+    protected Train createTrain(Locomotive engine, String origin, String destination) {
+        return new Train(engine, origin, destination);
+    }
+
     @AfterEach
     public void checkRepresentationInvariants() {
         WagonTest.checkRepresentationInvariant(passengerWagon1);
@@ -80,7 +91,7 @@ public class TrainTest {
 
     @Test
     public void T11_APassengerTrainsIsNoAFreightTrain() {
-        passengerTrain = new Train(new Locomotive(13, 13), "Here", "There");
+        passengerTrain = createTrain(new Locomotive(13, 13), "Here", "There");
         passengerTrain.setFirstWagon((Wagon)(Object)new PassengerWagon(1313, 1300));
         assertTrue(passengerTrain.isPassengerTrain());
         assertFalse(passengerTrain.isFreightTrain());
@@ -88,7 +99,7 @@ public class TrainTest {
 
     @Test
     public void T11_AFreightTrainIsNotAPassengerTrain() {
-        freightTrain = new Train(new Locomotive(13, 13), "Here", "There");
+        freightTrain = createTrain(new Locomotive(13, 13), "Here", "There");
         freightTrain.setFirstWagon((Wagon)(Object)new FreightWagon(1313, 1300));
         assertFalse(freightTrain.isPassengerTrain());
         assertTrue(freightTrain.isFreightTrain());
@@ -412,7 +423,7 @@ public class TrainTest {
 
     @Test
     public void T23_checkNulls() {
-        assertThrows(IllegalArgumentException.class, () -> new Train(null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> createTrain(null, null, null));
         assertThrows(IllegalArgumentException.class, () -> new Locomotive(1, -1));
         assertFalse(trainWithoutWagons.canAttach(null));
         assertFalse(trainWithoutWagons.attachToRear(null));
@@ -421,4 +432,32 @@ public class TrainTest {
         assertFalse(passengerTrain.moveOneWagon(8001, null));
     }
 
+    @Test
+    public void T24_ShouldIterateAndStreamTheWagons() {
+        int expectedId = 8001;
+        for (Wagon wagon : passengerTrain) {
+            assertEquals(expectedId++, wagon.getId());
+        }
+        assertEquals(8008, expectedId);
+        assertFalse(trainWithoutWagons.iterator().hasNext());
+        assertThrows(NoSuchElementException.class, () -> trainWithoutWagons.iterator().next());
+
+        Spliterator<Wagon> spliterator = passengerTrain.spliterator();
+        assertEquals(7, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<Wagon> front = spliterator.trySplit();
+        assertNotNull(front);
+        assertEquals(7, front.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+
+        assertEquals(passengerTrain.getTotalNumberOfSeats(),
+                passengerTrain.stream().parallel().mapToInt(wagon -> ((PassengerWagon) wagon).getNumberOfSeats()).sum());
+        assertEquals(0, trainWithoutWagons.stream().count());
+
+        passengerTrain.reverse();
+        assertEquals(8007, passengerTrain.stream().findFirst().orElseThrow().getId());
+        assertTrue(passengerTrain.attachToRear(passengerWagon3));
+        assertEquals(List.of(8007, 8006, 8005, 8004, 8003, 8002, 8001, 8013),
+                passengerTrain.stream().parallel().map(Wagon::getId).collect(Collectors.toList()));
+    }
+
 }
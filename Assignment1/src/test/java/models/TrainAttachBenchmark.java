@@ -0,0 +1,74 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appending a whole sequence of wagons to the rear of a train that already pulls as many wagons.
+ * The sequence is appended to the rear of the train and then back to the rear of a yard of the same length,
+ * so the score is of a pair of appends and every invocation starts from the same trains.
+ * Run with the main method from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainAttachBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int sequenceLength;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private Train train;
+    private Train yard;
+    private Wagon sequence;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        train = new Train(new Locomotive(1, 2 * sequenceLength), "Amsterdam", "Paris", indexed);
+        train.attachToRear(createSequence(0, sequenceLength));
+        yard = new Train(new Locomotive(2, 2 * sequenceLength), "Amsterdam", "Yard", indexed);
+        yard.attachToRear(createSequence(2 * sequenceLength, sequenceLength));
+        sequence = createSequence(sequenceLength, sequenceLength);
+        yard.attachToRear(sequence);
+    }
+
+    @Benchmark
+    public boolean attachSequenceToRear() {
+        return train.attachToRear(sequence) && yard.attachToRear(sequence);
+    }
+
+    /**
+     * Builds a loose sequence of freight wagons with consecutive ids.
+     *
+     * @param firstId the id of the head wagon
+     * @param length  the number of wagons in the sequence
+     * @return the head wagon of the sequence
+     */
+    static Wagon createSequence(int firstId, int length) {
+        Wagon head = new FreightWagon(firstId, 1000);
+        Wagon last = head;
+        for (int i = 1; i < length; i++) {
+            Wagon wagon = new FreightWagon(firstId + i, 1000);
+            last.attachTail(wagon);
+            last = wagon;
+        }
+        return head;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TrainAttachBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,123 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression baseline for the operations of Train on trains from 10 up to 1M wagons,
+ * of passenger or freight wagons, with and without the index of the train.
+ * Every benchmark undoes its own change, so the train keeps its length and composition during the run.
+ * Run with the main method from the test classpath, which also reports the allocation rates of the gc profiler.
+ * Any JMH command line option can be passed to the main method, e.g. -p length=1000 to run only one length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrainOperationsBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int length;
+
+    @Param({"PASSENGER", "FREIGHT"})
+    private String composition;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private Train train;
+    private Train yard;
+    private Train siding;
+    private Wagon spare;
+    private Wagon middleWagon;
+    private int middleId;
+    private int middlePosition;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        train = new Train(new Locomotive(1, length + 1), "Amsterdam", "Paris", indexed);
+        yard = new Train(new Locomotive(2, length), "Amsterdam", "Yard", indexed);
+
+        // link the wagons directly, attaching one by one to a plain train takes quadratic time
+        Wagon first = createWagon(0);
+        Wagon last = first;
+        for (int id = 1; id < length; id++) {
+            Wagon wagon = createWagon(id);
+            last.attachTail(wagon);
+            last = wagon;
+        }
+        train.setFirstWagon(first);
+
+        spare = createWagon(length);
+        middleId = length / 2;
+        middlePosition = length / 2 + 1;
+        middleWagon = train.findWagonById(middleId);
+
+        // the moved wagon is taken back from behind the first wagon of the siding,
+        // the first wagon of a plain train cannot be taken by another train
+        siding = new Train(new Locomotive(3, 2), "Amsterdam", "Siding", indexed);
+        siding.attachToRear(createWagon(length + 1));
+    }
+
+    private Wagon createWagon(int id) {
+        return composition.equals("PASSENGER") ? new PassengerWagon(id, 40) : new FreightWagon(id, 1000);
+    }
+
+    @Benchmark
+    public boolean attachToRear() {
+        boolean attached = train.attachToRear(spare);
+        spare.detachFront();
+        return attached;
+    }
+
+    @Benchmark
+    public boolean insertAtPosition() {
+        boolean inserted = train.insertAtPosition(middlePosition, spare);
+        spare.removeFromSequence();
+        return inserted;
+    }
+
+    @Benchmark
+    public Wagon findWagonById() {
+        return train.findWagonById(middleId);
+    }
+
+    /**
+     * Moves the middle wagon to the siding and inserts it back at its position in the train,
+     * so the score is of the pair of moveOneWagon and insertAtPosition.
+     */
+    @Benchmark
+    public boolean moveOneWagon() {
+        return train.moveOneWagon(middleId, siding) && train.insertAtPosition(middlePosition, middleWagon);
+    }
+
+    @Benchmark
+    public boolean splitAtPosition() {
+        return train.splitAtPosition(middlePosition, yard) && yard.splitAtPosition(1, train);
+    }
+
+    @Benchmark
+    public Wagon reverse() {
+        train.reverse();
+        return train.getFirstWagon();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(TrainOperationsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -1,5 +1,7 @@
 import models.TrafficTracker;
+import models.Violation;
 
+import java.util.List;
 import java.util.Locale;
 
 public class TrafficControlMain {
@@ -18,9 +20,10 @@ public class TrafficControlMain {
                 trafficTracker.getCars().subList(0, Integer.min(10, trafficTracker.getCars().size())) + "...\n");
 
         // import and process all detections at the city entry points of environmental zones from the data vault
-        trafficTracker.importDetectionsFromVault(VAULT_NAME + "/detections");
+        trafficTracker.importDetectionsFromVault(VAULT_NAME + "/detections", true);
+        List<Violation> violations = trafficTracker.getViolations();
         System.out.println("Aggregated offending detections:\n" +
-                trafficTracker.getViolations().subList(0, Integer.min(10, trafficTracker.getViolations().size())) + "... \n");
+                violations.subList(0, Integer.min(10, violations.size())) + "... \n");
 
         // calculate potential revenues from multiple fine schemes for violations
         System.out.printf("Total fines à €25 per offence for trucks and €35 per offence for coaches would amount to: €%.0f\n",
@@ -5,6 +5,7 @@ import java.time.LocalDate;
 public class Car implements Comparable<Car> {
 
     private final String licensePlate;      // defines the car uniquely
+    private final long plateKey;            // the license plate encoded by CarRegistry, or CarRegistry.NO_KEY
     private int emissionCategory;           // a number between 0 and 9, higher is cleaner, depends on type, fuel and age, typically.
     private CarType carType;
     private FuelType fuelType;
@@ -15,6 +16,7 @@ public class Car implements Comparable<Car> {
     }
     public Car(String licensePlate, int emissionCategory, CarType carType, FuelType fuelType, LocalDate dateOfAdmission) {
         this.licensePlate = licensePlate;
+        this.plateKey = CarRegistry.encode(licensePlate);
         this.emissionCategory = emissionCategory;
         this.carType = carType;
         this.fuelType = fuelType;
@@ -55,10 +57,48 @@ public class Car implements Comparable<Car> {
         return newCar;
     }
 
+    /**
+     * parses car information from the current record of a tokenizer, like fromLine parses a textLine
+     * the license plate is taken from the pool of the tokenizer
+     *
+     * @param record the tokenizer, positioned at the record
+     * @return a new Car instance with the provided information
+     * or null if the record is corrupt, incomplete or empty
+     */
+    public static Car fromRecord(CsvTokenizer record) {
+        Car newCar = null;
+
+        if (record.numberOfFields() >= 5) {
+            try {
+                // parse the fields in place and instantiate a new car
+                newCar = new Car(
+                        record.nextPooledString(),
+                        record.nextInt(),
+                        record.nextEnum(CarType.values()),
+                        record.nextEnum(FuelType.values()),
+                        record.nextDate()
+                );
+            } catch (Exception e) {
+                // any of the parse methods could throw an exception on a format mismatch
+                System.out.printf("Could not parse Car specification in text line '%s'\n", record.recordToString());
+                System.out.println(e.getMessage());
+            }
+        }
+
+        return newCar;
+    }
+
     public String getLicensePlate() {
         return licensePlate;
     }
 
+    /**
+     * @return the license plate encoded by CarRegistry.encode, or CarRegistry.NO_KEY if it cannot be encoded
+     */
+    public long getPlateKey() {
+        return plateKey;
+    }
+
     public int getEmissionCategory() {
         return emissionCategory;
     }
@@ -93,7 +133,10 @@ public class Car implements Comparable<Car> {
 
     @Override
     public int compareTo(Car other) {
-        // cars are uniquely defined by their license plate
+        // cars are uniquely defined by their license plate, the keys compare like the plates
+        if (this.plateKey != CarRegistry.NO_KEY && other.plateKey != CarRegistry.NO_KEY) {
+            return Long.compare(this.plateKey, other.plateKey);
+        }
         return this.licensePlate.compareTo(other.licensePlate);
     }
 
@@ -109,6 +152,7 @@ public class Car implements Comparable<Car> {
         if (this == o) return true;
         if (!(o instanceof Car car)) return false;
         // cars are uniquely defined by their license plate
+        if (plateKey != CarRegistry.NO_KEY || car.plateKey != CarRegistry.NO_KEY) return plateKey == car.plateKey;
         return licensePlate.equals(car.licensePlate);
     }
 
@@ -0,0 +1,164 @@
+package models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds cars by their license plate without creating any objects.
+ * License plates are encoded into a long key, which preserves the order of String.compareTo,
+ * such that plates can be compared and hashed as primitives.
+ * The keys are stored in an open-addressing hash table, plates that cannot be encoded are kept in a HashMap.
+ * A registry can extend a parent registry, which it only searches,
+ * such that concurrent imports can share the known cars and register the new cars apart.
+ */
+public class CarRegistry {
+    /** the key of a license plate that cannot be encoded */
+    public static final long NO_KEY = -1L;
+
+    // a plate is encoded as a number of MAX_LENGTH digits in base RADIX, one digit per character,
+    // padded with zeros, such that a shorter plate sorts before any longer plate with the same start
+    static final int MAX_LENGTH = 12;
+    static final int RADIX = 38;                // the padding, '-', '0'..'9' and 'A'..'Z', in the order of their chars
+
+    private final CarRegistry parent;
+    private long[] keys = new long[64];         // the keys of the open-addressing hash table, NO_KEY if free
+    private Car[] cars = new Car[64];           // the car of the key at the same position
+    private int size;                           // the number of cars in the hash table
+    private final Map<String, Car> unencodable = new HashMap<>();   // the cars with a plate that cannot be encoded
+
+    public CarRegistry() {
+        this(null);
+    }
+
+    /**
+     * @param parent the registry that is also searched, but not changed by this registry
+     */
+    public CarRegistry(CarRegistry parent) {
+        this.parent = parent;
+        Arrays.fill(keys, NO_KEY);
+    }
+
+    /**
+     * encodes a license plate of at most 12 characters out of '-', '0'..'9' and 'A'..'Z'
+     * the keys of two plates compare like the plates themselves by String.compareTo
+     *
+     * @param licensePlate the license plate
+     * @return the key of the plate, or NO_KEY if the plate cannot be encoded
+     */
+    public static long encode(CharSequence licensePlate) {
+        int length = licensePlate.length();
+        if (length > MAX_LENGTH) return NO_KEY;
+
+        long key = 0;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            int digit = i < length ? digitOf(licensePlate.charAt(i)) : 0;
+            if (digit < 0) return NO_KEY;
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    /**
+     * @param c a character of a license plate
+     * @return the digit of the character in the key of a plate, or -1 if it cannot be encoded
+     */
+    static int digitOf(int c) {
+        if (c == '-') return 1;
+        if (c >= '0' && c <= '9') return 2 + c - '0';
+        if (c >= 'A' && c <= 'Z') return 12 + c - 'A';
+        return -1;
+    }
+
+    /**
+     * finds a car by the key of its license plate
+     *
+     * @param key the key of the license plate, as given by encode
+     * @return the registered car, or null if none has been registered
+     */
+    public Car get(long key) {
+        if (key == NO_KEY) return null;
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); keys[slot] != NO_KEY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return cars[slot];
+        }
+        return parent == null ? null : parent.get(key);
+    }
+
+    /**
+     * finds a car by its license plate
+     *
+     * @param licensePlate the license plate
+     * @return the registered car, or null if none has been registered
+     */
+    public Car get(String licensePlate) {
+        long key = encode(licensePlate);
+        if (key != NO_KEY) return get(key);
+
+        Car car = unencodable.get(licensePlate);
+        return car != null || parent == null ? car : parent.get(licensePlate);
+    }
+
+    /**
+     * registers a car, unless a car with the same license plate has been registered already
+     *
+     * @param car the car
+     * @return the car that is registered with the license plate of the car, which is the car itself if it is new
+     */
+    public Car register(Car car) {
+        long key = car.getPlateKey();
+        Car registered = key == NO_KEY ? get(car.getLicensePlate()) : get(key);
+        if (registered != null) return registered;
+
+        if (key == NO_KEY) {
+            unencodable.put(car.getLicensePlate(), car);
+            return car;
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != NO_KEY) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        cars[slot] = car;
+        if (++size * 2 > keys.length) grow();
+        return car;
+    }
+
+    /**
+     * @return the number of cars in this registry, without the cars of the parent
+     */
+    public int size() {
+        return size + unencodable.size();
+    }
+
+    /**
+     * removes all cars from this registry, the parent is not changed
+     */
+    public void clear() {
+        Arrays.fill(keys, NO_KEY);
+        Arrays.fill(cars, null);
+        size = 0;
+        unencodable.clear();
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Car[] oldCars = cars;
+        keys = new long[oldKeys.length * 2];
+        cars = new Car[oldCars.length * 2];
+        Arrays.fill(keys, NO_KEY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == NO_KEY) continue;
+            int slot = slotOf(oldKeys[i], mask);
+            while (keys[slot] != NO_KEY) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            cars[slot] = oldCars[i];
+        }
+    }
+
+    private static int slotOf(long key, int mask) {
+        // plates differ mostly in their last characters, which the multiplication spreads over the high bits
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,161 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * An OrderedList that can be merged into by many threads at once, like the importers of a vault.
+ * The items are kept in a concurrent skip list by the ordening, such that the list is always sorted
+ * and merge is lock-free: a new item is inserted atomically, and a matching item is replaced
+ * by compare-and-set, which retries the merger if another thread replaced the item in between.
+ * The merger shall therefore not have side effects, like Violation::combineOffencesCounts.
+ * Items that are equal by the ordening are kept once, and positional inserts and replacements are not supported.
+ * Known limitation: positions are counted by walking the list, like with a LinkedList,
+ * so get(int), remove(int), indexOf and indexOfByBinarySearch take O(n).
+ * The list is therefore no drop-in replacement for an OrderedArrayList that is searched by position.
+ * Iterators and aggregates are weakly consistent: they see all merges that completed before they started.
+ */
+public class ConcurrentOrderedList<E> extends AbstractList<E> implements OrderedList<E> {
+
+    private final ConcurrentSkipListMap<E, E> items;     // every item by itself, ordered by the ordening
+
+    public ConcurrentOrderedList(Comparator<? super E> ordening) {
+        this.items = new ConcurrentSkipListMap<>(ordening);
+    }
+
+    @Override
+    public Comparator<? super E> getOrdening() {
+        return this.items.comparator();
+    }
+
+    /**
+     * the list is always sorted, so there is nothing left to do
+     */
+    @Override
+    public void sort() {
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0) throw new IndexOutOfBoundsException(index);
+        Iterator<E> iterator = this.items.values().iterator();
+        for (int i = 0; i < index && iterator.hasNext(); i++) iterator.next();
+        if (!iterator.hasNext()) throw new IndexOutOfBoundsException(index);
+        return iterator.next();
+    }
+
+    @Override
+    public int size() {
+        return this.items.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return this.items.values().iterator();
+    }
+
+    /**
+     * adds an item, unless an item that is equal by the ordening is present already
+     *
+     * @return whether the item has been added
+     */
+    @Override
+    public boolean add(E item) {
+        return this.items.putIfAbsent(item, item) == null;
+    }
+
+    @Override
+    public E remove(int index) {
+        E item = get(index);
+        return this.items.remove(item) != null ? item : null;
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        try {
+            return this.items.remove(item) != null;
+        } catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        try {
+            return this.items.containsKey(item);
+        } catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.items.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")  // an item of another type fails on the ordening, which is caught
+    public int indexOf(Object item) {
+        try {
+            return indexOfByBinarySearch((E) item);
+        } catch (ClassCastException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int lastIndexOf(Object item) {
+        // items are unique by the ordening
+        return indexOf(item);
+    }
+
+    /**
+     * finds the position of the item that matches the searchItem by the ordening
+     * the item is found in O(log n), but its position is counted by walking the items that precede it,
+     * so the search takes O(n) in total
+     *
+     * @param searchItem the item to be searched on the basis of comparison by the ordening
+     * @return the position index of the found item, or -1 if no item matches the search item.
+     */
+    @Override
+    public int indexOfByBinarySearch(E searchItem) {
+        if (searchItem == null || !this.items.containsKey(searchItem)) return -1;
+        return this.items.headMap(searchItem).size();
+    }
+
+    /**
+     * merges the newItem atomically, even if other threads merge the same item at the same time
+     *
+     * @param newItem the item to be merged
+     * @param merger  a function without side effects that merges the found item with the newItem,
+     *                it may be called more than once if other threads merge the same item in between
+     * @return whether the newItem has been added as a new item
+     */
+    @Override
+    public boolean merge(E newItem, BinaryOperator<E> merger) {
+        if (newItem == null) return false;
+
+        // compute replaces the found item by compare-and-set on its reference, and calls the merger again on a failure,
+        // so the outcome of the last call is the one that counts
+        boolean[] added = new boolean[1];
+        this.items.compute(newItem, (key, found) -> {
+            added[0] = found == null;
+            return found == null ? newItem : merger.apply(found, newItem);
+        });
+        return added[0];
+    }
+
+    @Override
+    public double aggregate(Function<E, Double> mapper) {
+        double sum = 0.0;
+
+        for (E item : this.items.values()) {
+            sum += mapper.apply(item);
+        }
+        return sum;
+    }
+}
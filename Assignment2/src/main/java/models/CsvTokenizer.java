@@ -0,0 +1,332 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Reads the comma-separated records of a text file directly from a memory-mapped buffer.
+ * Every line is a record, its fields are parsed in place into ints, enums, dates and strings,
+ * without creating a String for the line or for the fields that are not strings.
+ * Fields are trimmed like String.trim, and the lines follow Scanner: trailing blank lines are no records.
+ * Strings that repeat, like license plates and cities, can be taken from a pool of the tokenizer,
+ * such that every distinct value is created only once per file.
+ */
+public class CsvTokenizer {
+    private static final byte SEPARATOR = ',';
+    private static final byte NEW_LINE = '\n';
+
+    private final ByteBuffer buffer;
+    private final int end;              // the end of the last line that is not blank
+    private int position;               // the start of the next record
+    private int recordStart;            // the start of the current record
+    private int recordEnd;              // the end of the current record, without its line separator
+    private int fieldStart;             // the start of the next field of the current record, beyond recordEnd if none
+    private int tokenStart;             // the start of the latest field, trimmed
+    private int tokenEnd;               // the end of the latest field, trimmed
+
+    private String[] pool = new String[64];     // open-addressing hash table of the pooled strings
+    private int pooled;                         // the number of strings in the pool
+
+    public CsvTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int last = buffer.limit();
+        while (last > 0 && isWhitespace(buffer.get(last - 1))) last--;
+        this.end = last;
+        this.position = 0;
+        this.recordEnd = -1;
+        this.fieldStart = 0;
+    }
+
+    /**
+     * maps a file for tokenizing
+     *
+     * @param file the text file
+     * @return a tokenizer positioned before the first record of the file
+     */
+    public static CsvTokenizer of(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel has been closed
+            return new CsvTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot map file on path: " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * advances to the next line of the file
+     *
+     * @return whether there is another record
+     */
+    public boolean nextRecord() {
+        if (position >= end) return false;
+
+        recordStart = position;
+        int newLine = recordStart;
+        while (newLine < buffer.limit() && buffer.get(newLine) != NEW_LINE) newLine++;
+        position = newLine + 1;
+        recordEnd = newLine > recordStart && buffer.get(newLine - 1) == '\r' ? newLine - 1 : newLine;
+        fieldStart = recordStart;
+        return true;
+    }
+
+    /**
+     * counts the fields of the current record in the same way as String.split(","):
+     * a record without separators has one field, otherwise trailing empty fields do not count
+     *
+     * @return the number of fields of the current record
+     */
+    public int numberOfFields() {
+        int fields = 1;
+        int lastNonEmpty = 0;       // the number of fields up to the last field that is not empty
+        boolean empty = true;
+        for (int i = recordStart; i < recordEnd; i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                if (!empty) lastNonEmpty = fields;
+                fields++;
+                empty = true;
+            } else {
+                empty = false;
+            }
+        }
+        if (!empty) lastNonEmpty = fields;
+        return fields == 1 ? 1 : lastNonEmpty;
+    }
+
+    /**
+     * @return whether the current record has another field
+     */
+    public boolean hasNextField() {
+        return fieldStart <= recordEnd;
+    }
+
+    /**
+     * @return the next field of the current record as a new, trimmed string
+     */
+    public String nextString() {
+        nextField();
+        return decode(tokenStart, tokenEnd);
+    }
+
+    /**
+     * @return the next field of the current record as a trimmed string from the pool of the tokenizer
+     */
+    public String nextPooledString() {
+        nextField();
+        return pooled(tokenStart, tokenEnd);
+    }
+
+    /**
+     * encodes the next field of the current record as a license plate, like CarRegistry.encode of the trimmed field,
+     * without creating a String
+     *
+     * @return the key of the plate, or CarRegistry.NO_KEY if the field cannot be encoded
+     */
+    public long nextPlateKey() {
+        nextField();
+        int length = tokenEnd - tokenStart;
+        if (length > CarRegistry.MAX_LENGTH) return CarRegistry.NO_KEY;
+
+        long key = 0;
+        for (int i = 0; i < CarRegistry.MAX_LENGTH; i++) {
+            int digit = i < length ? CarRegistry.digitOf(buffer.get(tokenStart + i)) : 0;
+            if (digit < 0) return CarRegistry.NO_KEY;
+            key = key * CarRegistry.RADIX + digit;
+        }
+        return key;
+    }
+
+    /**
+     * @return the latest field of the current record again, as a trimmed string from the pool of the tokenizer
+     */
+    public String latestPooledString() {
+        return pooled(tokenStart, tokenEnd);
+    }
+
+    /**
+     * parses the next field of the current record like Integer.parseInt of the trimmed field
+     *
+     * @throws NumberFormatException if the field is not an int
+     */
+    public int nextInt() {
+        nextField();
+        return parseInt(tokenStart, tokenEnd);
+    }
+
+    /**
+     * parses the next field of the current record like Enum.valueOf of the trimmed field
+     *
+     * @param constants the constants of the enum type, as given by values()
+     * @throws IllegalArgumentException if the field does not match the name of any of the constants
+     */
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        nextField();
+        for (E constant : constants) {
+            if (matches(constant.name(), tokenStart, tokenEnd)) return constant;
+        }
+        throw new IllegalArgumentException("No enum constant %s.%s".formatted(
+                constants.length == 0 ? "?" : constants[0].getDeclaringClass().getName(), decode(tokenStart, tokenEnd)));
+    }
+
+    /**
+     * parses the next field of the current record like LocalDate.parse of the trimmed field
+     *
+     * @throws java.time.DateTimeException if the field is not an ISO date
+     */
+    public LocalDate nextDate() {
+        nextField();
+        int start = tokenStart;
+        if (tokenEnd - start == 10 && buffer.get(start + 4) == '-' && buffer.get(start + 7) == '-') {
+            int year = parseDigits(start, 4), month = parseDigits(start + 5, 2), day = parseDigits(start + 8, 2);
+            if ((year | month | day) >= 0) return LocalDate.of(year, month, day);
+        }
+        return LocalDate.parse(decode(start, tokenEnd));
+    }
+
+    /**
+     * parses the next field of the current record like LocalDateTime.parse of the trimmed field
+     *
+     * @throws java.time.DateTimeException if the field is not an ISO date and time
+     */
+    public LocalDateTime nextDateTime() {
+        nextField();
+        int start = tokenStart;
+        if (tokenEnd - start == 19 && buffer.get(start + 4) == '-' && buffer.get(start + 7) == '-'
+                && buffer.get(start + 10) == 'T' && buffer.get(start + 13) == ':' && buffer.get(start + 16) == ':') {
+            int year = parseDigits(start, 4), month = parseDigits(start + 5, 2), day = parseDigits(start + 8, 2);
+            int hour = parseDigits(start + 11, 2), minute = parseDigits(start + 14, 2), second = parseDigits(start + 17, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDateTime.parse(decode(start, tokenEnd));
+    }
+
+    /**
+     * @return the text of the current record, for reporting only
+     */
+    public String recordToString() {
+        return decode(recordStart, recordEnd);
+    }
+
+    /**
+     * finds the bounds of the next field, trimmed, and moves fieldStart beyond it
+     */
+    private void nextField() {
+        if (!hasNextField()) throw new IllegalStateException("No more fields in record: " + recordToString());
+        int separator = fieldStart;
+        while (separator < recordEnd && buffer.get(separator) != SEPARATOR) separator++;
+
+        int start = fieldStart;
+        int fieldEnd = separator;
+        while (start < fieldEnd && isBlank(buffer.get(start))) start++;
+        while (fieldEnd > start && isBlank(buffer.get(fieldEnd - 1))) fieldEnd--;
+
+        this.tokenStart = start;
+        this.tokenEnd = fieldEnd;
+        this.fieldStart = separator + 1;
+    }
+
+    private int parseInt(int start, int fieldEnd) {
+        int i = start;
+        boolean negative = false;
+        if (i < fieldEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == fieldEnd) throw new NumberFormatException("For input string: \"%s\"".formatted(decode(start, fieldEnd)));
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("For input string: \"%s\"".formatted(decode(start, fieldEnd)));
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) value = -value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"%s\"".formatted(decode(start, fieldEnd)));
+        }
+        return (int) value;
+    }
+
+    /**
+     * parses a fixed number of digits of a date or time, which is validated by LocalDate or LocalDateTime
+     *
+     * @return the value of the digits, or -1 if any of them is not a digit, which is left to the ISO parser to report
+     */
+    private int parseDigits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private boolean matches(String text, int start, int fieldEnd) {
+        if (text.length() != fieldEnd - start) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != buffer.get(start + i)) return false;
+        }
+        return true;
+    }
+
+    private String decode(int start, int fieldEnd) {
+        byte[] bytes = new byte[fieldEnd - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * finds the string of the bytes in the pool, or adds it
+     * only ASCII strings are pooled, such that every byte is a char of the string
+     */
+    private String pooled(int start, int fieldEnd) {
+        int hash = 0;
+        for (int i = start; i < fieldEnd; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) return decode(start, fieldEnd);
+            hash = 31 * hash + b;
+        }
+
+        int mask = pool.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (pool[slot] != null) {
+            if (pool[slot].hashCode() == hash && matches(pool[slot], start, fieldEnd)) return pool[slot];
+            slot = (slot + 1) & mask;
+        }
+        String text = decode(start, fieldEnd);
+        pool[slot] = text;
+        if (++pooled * 2 > pool.length) growPool();
+        return text;
+    }
+
+    private void growPool() {
+        String[] old = pool;
+        pool = new String[old.length * 2];
+        int mask = pool.length - 1;
+        for (String text : old) {
+            if (text == null) continue;
+            int hash = text.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (pool[slot] != null) slot = (slot + 1) & mask;
+            pool[slot] = text;
+        }
+    }
+
+    private static boolean isBlank(byte b) {
+        // String.trim removes all characters up to and including the space
+        return b >= 0 && b <= ' ';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
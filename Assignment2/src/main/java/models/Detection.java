@@ -67,6 +67,44 @@ public class Detection {
         }
     }
 
+    /**
+     * Parses detection information from the current record of a tokenizer, like fromLine parses a textLine.
+     * The car is found by the encoded license plate in a registry, without creating a String or a Car for a known car,
+     * the city is taken from the pool of the tokenizer.
+     * A car that is not registered yet is added to both the list and the registry.
+     *
+     * @param record   the tokenizer, positioned at the record
+     * @param cars     the list of known cars, which receives the new cars
+     * @param registry the registry of all cars in the list
+     * @return a new Detection instance with the provided information
+     * or null if the record is corrupt or incomplete
+     */
+    public static Detection fromRecord(CsvTokenizer record, List<Car> cars, CarRegistry registry) {
+        if (record.numberOfFields() != 3) return null;
+
+        long plateKey = record.nextPlateKey();
+        Car car = plateKey != CarRegistry.NO_KEY ? registry.get(plateKey) : registry.get(record.latestPooledString());
+
+        // if the car is not known, add it to the list and the registry
+        if (car == null) {
+            car = new Car(record.latestPooledString());
+            cars.add(car);
+            registry.register(car);
+        }
+
+        // return the detection.
+        try {
+            return new Detection(
+                    car,
+                    record.nextPooledString(),
+                    record.nextDateTime()
+            );
+        } catch (Exception e) {
+            // returning null if any of the parsing methods fail
+            return null;
+        }
+    }
+
     /**
      * Validates a detection against the purple conditions for entering an environmentally restricted zone
      * I.e.:
@@ -76,20 +114,31 @@ public class Detection {
      * null if no offence was found.
      */
     public Violation validatePurple() {
-        if (car.getFuelType() == FuelType.Diesel &&
-                (car.getCarType() == CarType.Truck || car.getCarType() == CarType.Coach)) {
-            if (car.getEmissionCategory() < 6) {
-                return new Violation(this.car, this.city);
-            }
-        }
+        return violatesPurple() ? new Violation(this.car, this.city) : null;
+    }
 
-        return null;
+    /**
+     * Validates a detection against the purple conditions like validatePurple, without creating a Violation
+     *
+     * @return whether the detection saw an offence against the purple zone rule
+     */
+    public boolean violatesPurple() {
+        return car.getFuelType() == FuelType.Diesel &&
+                (car.getCarType() == CarType.Truck || car.getCarType() == CarType.Coach) &&
+                car.getEmissionCategory() < 6;
     }
 
     public Car getCar() {
         return car;
     }
 
+    /**
+     * @return the plate key of the detected car, as encoded by CarRegistry
+     */
+    public long getPlateKey() {
+        return car.getPlateKey();
+    }
+
     public String getCity() {
         return city;
     }
@@ -0,0 +1,235 @@
+package models;
+
+import java.io.Serial;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An OrderedArrayList with a hash index on the key of its ordening.
+ * indexOf, and hence merge and remove, find an item in O(1) regardless of the size of the unsorted section,
+ * where the OrderedArrayList has to fall back on a linear search of that section.
+ * A list can be given an aggregator when it is created, of which getAggregate keeps a running total
+ * that is updated with every change of the list.
+ *
+ * The key shall be consistent with the ordening:
+ * two items have equal keys if and only if the ordening compares them as 0.
+ * After sort(), indexOf only reads the list, so concurrent threads can search it for as long as no thread changes it.
+ */
+public class HashedOrderedArrayList<E> extends OrderedArrayList<E> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Function<? super E, ?> key;   // the key of an item, consistent with the ordening
+    private final Map<Object, Integer> index;   // the lowest position of every key in the list
+    private int indexedModCount;                // the modCount of the list when the index was last brought up to date
+    // representation-invariant
+    //      if modCount == indexedModCount, index maps the key of every item in the list to the lowest position of that key
+    //      the list can be changed by operations that do not maintain the index (e.g. removeIf or via a subList),
+    //      which is detected by modCount and repaired by a rebuild of the index before its next use
+
+    private final Function<? super E, Double> aggregator;   // the mapper of the running total, null if none
+    private double aggregated;                  // the running total of the aggregator over all items
+
+    public HashedOrderedArrayList(Comparator<? super E> ordening, Function<? super E, ?> key) {
+        this(ordening, key, null);
+    }
+
+    /**
+     * @param aggregator the mapper of which getAggregate keeps a running total, or null if none
+     */
+    public HashedOrderedArrayList(Comparator<? super E> ordening, Function<? super E, ?> key,
+                                  Function<? super E, Double> aggregator) {
+        super(ordening);
+        this.key = key;
+        this.index = new HashMap<>();
+        this.indexedModCount = modCount;
+        this.aggregator = aggregator;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        index.clear();
+        indexedModCount = modCount;
+        aggregated = 0.0;
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        super.sort(c);
+        // sorting does not change the aggregate
+        index.clear();
+        reindexFrom(0);
+    }
+
+    @Override
+    public void sort() {
+        ensureIndexed();
+        super.sort();
+    }
+
+    @Override
+    protected int sortUnsortedSection() {
+        ensureIndexed();
+        int firstChanged = super.sortUnsortedSection();
+        // the merge only moves items from the first changed position onward, and does not change the aggregate
+        reindexFrom(firstChanged);
+        return firstChanged;
+    }
+
+    @Override
+    public boolean add(E element) {
+        ensureIndexed();
+        super.add(element);
+        index.putIfAbsent(keyOf(element), size() - 1);
+        indexedModCount = modCount;
+        aggregateAdded(element);
+        return true;
+    }
+
+    @Override
+    public void add(int position, E element) {
+        ensureIndexed();
+        super.add(position, element);
+        reindexFrom(position);
+        aggregateAdded(element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        ensureIndexed();
+        int oldSize = size();
+        if (!super.addAll(elements)) return false;
+        for (int i = oldSize; i < size(); i++) {
+            index.putIfAbsent(keyOf(get(i)), i);
+            aggregateAdded(get(i));
+        }
+        indexedModCount = modCount;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(int position, Collection<? extends E> elements) {
+        ensureIndexed();
+        if (!super.addAll(position, elements)) return false;
+        reindexFrom(position);
+        for (int i = position; i < position + elements.size(); i++) {
+            aggregateAdded(get(i));
+        }
+        return true;
+    }
+
+    @Override
+    public E set(int position, E element) {
+        ensureIndexed();
+        E old = super.set(position, element);
+        Object oldKey = keyOf(old);
+        Object newKey = keyOf(element);
+        if (!Objects.equals(oldKey, newKey)) {
+            // the position of the old key moves to its next occurrence, if any
+            if (Objects.equals(index.get(oldKey), position)) {
+                index.remove(oldKey);
+                for (int i = position + 1; i < size(); i++) {
+                    if (Objects.equals(oldKey, keyOf(get(i)))) {
+                        index.put(oldKey, i);
+                        break;
+                    }
+                }
+            }
+            index.merge(newKey, position, Math::min);
+        }
+        aggregateRemoved(old);
+        aggregateAdded(element);
+        return old;
+    }
+
+    @Override
+    public E remove(int position) {
+        ensureIndexed();
+        if (position < 0 || position >= size()) return null;
+
+        E removed = super.remove(position);
+        Object removedKey = keyOf(removed);
+        index.remove(removedKey, position);
+        reindexFrom(position);
+        aggregateRemoved(removed);
+        return removed;
+    }
+
+    /**
+     * finds the position of an item by the hash index on its key
+     *
+     * @param item the item to be searched on the basis of its key
+     * @return the lowest position of an item with the same key, or -1 if no item matches the search item.
+     */
+    @Override
+    @SuppressWarnings("unchecked")  // an item of another type fails on its key, like on the ordening of OrderedArrayList
+    public int indexOf(Object item) {
+        if (item == null) return -1;
+        ensureIndexed();
+        Integer position = index.get(keyOf((E) item));
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * gets the running total of the aggregator of the list in O(1)
+     * The total is kept up to date with every change of the list,
+     * but changes to the items themselves are not seen by the list and require recalculateAggregate.
+     *
+     * @return the total sum of the contributions of all items by the aggregator
+     * @throws IllegalStateException if the list has been created without an aggregator
+     */
+    public double getAggregate() {
+        if (aggregator == null) throw new IllegalStateException("The list has been created without an aggregator");
+        ensureIndexed();
+        return aggregated;
+    }
+
+    /**
+     * recalculates the running total of the aggregator of the list over all items,
+     * after items of the list have been changed in place
+     */
+    public void recalculateAggregate() {
+        aggregated = aggregator == null ? 0.0 : super.aggregate(aggregator::apply);
+    }
+
+    private Object keyOf(E item) {
+        return item == null ? null : key.apply(item);
+    }
+
+    /**
+     * repairs the index after the items from the given position onward have been shifted
+     * every key that occurs in the shifted section and not before it is mapped to its new lowest position
+     */
+    private void reindexFrom(int from) {
+        for (int i = size() - 1; i >= from; i--) {
+            Object itemKey = keyOf(get(i));
+            Integer position = index.get(itemKey);
+            if (position == null || position >= from) index.put(itemKey, i);
+        }
+        indexedModCount = modCount;
+    }
+
+    private void rebuildIndex() {
+        index.clear();
+        reindexFrom(0);
+        // the list has been changed behind its back, so the running total cannot be trusted either
+        recalculateAggregate();
+    }
+
+    private void ensureIndexed() {
+        if (modCount != indexedModCount) rebuildIndex();
+    }
+
+    private void aggregateAdded(E item) {
+        if (aggregator != null) aggregated += aggregator.apply(item);
+    }
+
+    private void aggregateRemoved(E item) {
+        if (aggregator != null) aggregated -= aggregator.apply(item);
+    }
+}
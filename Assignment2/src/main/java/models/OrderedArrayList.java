@@ -2,6 +2,7 @@ package models;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 
@@ -69,8 +70,60 @@ public class OrderedArrayList<E>
     @Override
     public void sort() {
         if (this.nSorted < this.size()) {
-            this.sort(this.ordening);
+            if (this.nSorted <= 0 || this.ordening == null) {
+                this.sort(this.ordening);
+            } else {
+                this.sortUnsortedSection();
+            }
+        }
+    }
+
+    /**
+     * sorts only the unsorted section of the list and merges it into the sorted section
+     * the merge takes one binary search per unsorted item and moves every item after the first changed position
+     * at most once, within the list itself, instead of a sort of the complete list
+     * only the unsorted section is copied into a scratch buffer
+     *
+     * @return the first position that has changed, all items before it have kept their position
+     */
+    protected int sortUnsortedSection() {
+        final int size = this.size();
+        List<E> unsorted = new ArrayList<>(this.subList(this.nSorted, size));
+        unsorted.sort(this.ordening);
+
+        // merge from the back, such that every item moves at most once
+        int sortedEnd = this.nSorted;   // the end of the sorted items that have not been moved yet
+        int target = size;              // the start of the merged section at the end of the list
+        for (int u = unsorted.size() - 1; u >= 0; u--) {
+            E item = unsorted.get(u);
+            // sorted items that compare equal stay in front of the unsorted item
+            int position = upperBound(sortedEnd, item);
+            for (int i = sortedEnd - 1; i >= position; i--) {
+                super.set(--target, this.get(i));
+            }
+            sortedEnd = position;
+            super.set(--target, item);
+        }
+
+        this.nSorted = size;
+        return sortedEnd;
+    }
+
+    /**
+     * @return the position of the first of the sorted items [0..end) that is ordened after the searchItem, or end
+     */
+    private int upperBound(int end, E searchItem) {
+        int left = 0;
+        int right = end;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (this.ordening.compare(searchItem, this.get(mid)) < 0) {
+                right = mid;
+            } else {
+                left = mid + 1;
+            }
         }
+        return left;
     }
 
     @Override
@@ -4,20 +4,32 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.function.BinaryOperator;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public class TrafficTracker {
     private final String TRAFFIC_FILE_EXTENSION = ".txt";
     private final String TRAFFIC_FILE_PATTERN = ".+\\" + TRAFFIC_FILE_EXTENSION;
 
     private final OrderedList<Car> cars;                  // the reference list of all known Cars registered by the RDW
-    private final OrderedList<Violation> violations;      // the accumulation of all offences by car and by city
+    private final CarRegistry carRegistry = new CarRegistry();  // finds the cars by their encoded license plates
+    private List<Car> vaultCars = List.of();              // the cars imported by importCarsFromVault, without new cars
+    private final CarRegistry vaultCarRegistry = new CarRegistry();     // finds the vaultCars only
+    private final ViolationTable violations;              // the accumulation of all offences by car and by city
+    private final ViolationTimeline timeline = new ViolationTimeline();     // the offences by the hour of detection
+    // the live totals of the offences that the tracker merges into this.violations, by car and by city
+    private final Map<Car, OffencesGroup<Car>> offencesByCar = new HashMap<>();
+    private final Map<String, OffencesGroup<String>> offencesByCity = new HashMap<>();
 
     public TrafficTracker() {
-        this.cars = new OrderedArrayList<>(Comparator.comparing(Car::getLicensePlate));
-        this.violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        this.cars = new HashedOrderedArrayList<>(Comparator.comparing(Car::getLicensePlate), Car::getLicensePlate);
+        this.violations = new ViolationTable();
     }
 
     /**
@@ -49,6 +61,30 @@ public class TrafficTracker {
         return numberOfLines;
     }
 
+    /**
+     * imports a collection of items from a comma-separated text file which provides one record on each line
+     * the records are tokenized directly from the memory-mapped file, without creating a String for every line
+     *
+     * @param items     the list to which imported items shall be added
+     * @param file      the source text file
+     * @param converter a function that can convert the current record of a tokenizer into a new item instance
+     * @param <E>       the (generic) type of each item
+     */
+    public static <E> int importRecordsFromFile(List<E> items, File file, Function<CsvTokenizer, E> converter) {
+        int numberOfLines = 0;
+
+        CsvTokenizer records = CsvTokenizer.of(file);
+
+        // convert each record to an item of type E
+        // and add each converted item into the list
+        while (records.nextRecord()) {
+            numberOfLines++;
+            items.add(converter.apply(records));
+        }
+
+        return numberOfLines;
+    }
+
     /**
      * helper method to create a scanner on a file and handle the exception
      *
@@ -80,12 +116,19 @@ public class TrafficTracker {
         this.cars.clear();
 
         // load all cars from the text file
-        int numberOfLines = importItemsFromFile(this.cars,
+        int numberOfLines = importRecordsFromFile(this.cars,
                 createFileFromURL(TrafficTracker.class.getResource(resourceName)),
-                Car::fromLine);
+                Car::fromRecord);
 
         // sort the cars for efficient later retrieval
         this.cars.sort();
+        this.carRegistry.clear();
+        this.vaultCarRegistry.clear();
+        for (Car car : this.cars) {
+            this.carRegistry.register(car);
+            this.vaultCarRegistry.register(car);
+        }
+        this.vaultCars = List.copyOf(this.cars);
 
         System.out.printf("Imported %d cars from %d lines in %s.\n", this.cars.size(), numberOfLines, resourceName);
     }
@@ -97,38 +140,112 @@ public class TrafficTracker {
      * @param resourceName the name of the resource folder
      */
     public void importDetectionsFromVault(String resourceName) {
-        this.violations.clear();
+        this.importDetectionsFromVault(resourceName, false);
+    }
 
-        int totalNumberOfOffences =
-                this.mergeDetectionsFromVaultRecursively(
-                        createFileFromURL(TrafficTracker.class.getResource(resourceName)));
+    /**
+     * imports and merges all raw detection data of all entry gates of all cities from the hierarchical file structure of the vault
+     * accumulates any offences against purple rules into this.violations
+     * In parallel, the files are read and aggregated concurrently, and the results are merged in the order of the vault,
+     * such that the violations and the cars end up exactly as with a sequential import.
+     *
+     * @param resourceName the name of the resource folder
+     * @param inParallel   whether the files of the vault shall be imported concurrently
+     */
+    public void importDetectionsFromVault(String resourceName, boolean inParallel) {
+        this.clearViolations();
+
+        List<File> files = new ArrayList<>();
+        findDetectionFilesRecursively(createFileFromURL(TrafficTracker.class.getResource(resourceName)), files);
+
+        int totalNumberOfOffences = 0;
+        if (inParallel) {
+            // the workers only search this.carRegistry, and register their new cars apart
+            List<DetectionsImport> imports = files.parallelStream()
+                    .map(file -> importDetectionsFromFile(file, this.carRegistry))
+                    .toList();
+            for (DetectionsImport detectionsImport : imports) {
+                totalNumberOfOffences += this.mergeDetectionsImport(detectionsImport);
+            }
+        } else {
+            for (File file : files) {
+                totalNumberOfOffences += this.mergeDetectionsFromFile(file);
+            }
+        }
 
         System.out.printf("Found %d offences among detections imported from files in %s.\n",
                 totalNumberOfOffences, resourceName);
     }
 
     /**
-     * traverses the detections vault recursively and processes every data file that it finds
+     * imports and merges all raw detection data of the vault like importDetectionsFromVault in parallel,
+     * but takes the import of every file that did not change from a binary cache file,
+     * and only parses the files that are new or changed, after which the cache file is updated.
+     * The cache is only used for the same cars as imported by importCarsFromVault,
+     * and the files are parsed against those cars only, such that the new cars of earlier imports do not matter.
      *
-     * @param file
+     * @param resourceName the name of the resource folder
+     * @param cacheFile    the cache file, which need not exist yet
      */
-    private int mergeDetectionsFromVaultRecursively(File file) {
+    public void importDetectionsFromVault(String resourceName, File cacheFile) {
+        this.clearViolations();
+
+        List<File> files = new ArrayList<>();
+        findDetectionFilesRecursively(createFileFromURL(TrafficTracker.class.getResource(resourceName)), files);
+
+        long fingerprint = VaultCache.fingerprintOf(this.vaultCars);
+        Map<String, DetectionsImport> cachedImports = VaultCache.read(cacheFile, fingerprint, this.vaultCarRegistry);
+        List<DetectionsImport> imports = files.parallelStream()
+                .map(file -> {
+                    DetectionsImport cachedImport = cachedImports.get(file.getPath());
+                    return cachedImport != null && cachedImport.isImportOf(file)
+                            ? cachedImport
+                            : importDetectionsFromFile(file, this.vaultCarRegistry);
+                })
+                .toList();
+
         int totalNumberOfOffences = 0;
+        int numberOfCachedFiles = 0;
+        for (DetectionsImport detectionsImport : imports) {
+            totalNumberOfOffences += this.mergeDetectionsImport(detectionsImport);
+            if (detectionsImport == cachedImports.get(detectionsImport.file.getPath())) numberOfCachedFiles++;
+        }
+        if (numberOfCachedFiles < imports.size() || cachedImports.size() != imports.size()) {
+            VaultCache.write(cacheFile, fingerprint, imports);
+        }
 
+        System.out.printf("Found %d offences among detections imported from files in %s, %d of %d files from %s.\n",
+                totalNumberOfOffences, resourceName, numberOfCachedFiles, files.size(), cacheFile.getPath());
+    }
+
+    /**
+     * removes all violations and their totals, before a new import of the detections
+     */
+    private void clearViolations() {
+        this.violations.clear();
+        this.offencesByCar.clear();
+        this.offencesByCity.clear();
+        this.timeline.clear();
+    }
+
+    /**
+     * traverses the detections vault recursively and collects every data file that it finds
+     *
+     * @param file  the file or folder to traverse
+     * @param files the list that receives the data files in the order of traversal
+     */
+    private void findDetectionFilesRecursively(File file, List<File> files) {
         if (file.isDirectory()) {
             // the file is a folder (a.k.a. directory)
             //  retrieve a list of all files and sub folders in this directory
             File[] filesInDirectory = Objects.requireNonNullElse(file.listFiles(), new File[0]);
             for (File nestedFile : filesInDirectory) {
-                totalNumberOfOffences += mergeDetectionsFromVaultRecursively(nestedFile);
+                findDetectionFilesRecursively(nestedFile, files);
             }
         } else if (file.getName().matches(TRAFFIC_FILE_PATTERN)) {
             // the file is a regular file that matches the target pattern for raw detection files
-            // process the content of this file and merge the offences found into this.violations
-            totalNumberOfOffences += this.mergeDetectionsFromFile(file);
+            files.add(file);
         }
-
-        return totalNumberOfOffences;
     }
 
     /**
@@ -138,28 +255,130 @@ public class TrafficTracker {
      * @param file
      */
     private int mergeDetectionsFromFile(File file) {
-        // re-sort the accumulated violations for efficient searching and merging
-        this.violations.sort();
+        int numberOfDetections = 0;
+        int totalNumberOfOffences = 0; // tracks the number of offences that emerges from the data in this file
 
-        // use a regular ArrayList to load the raw detection info from the file
-        List<Detection> newDetections = new ArrayList<>();
+        // stream the detections of the file into the violations, without keeping them
+        CsvTokenizer records = CsvTokenizer.of(file);
+        while (records.nextRecord()) {
+            numberOfDetections++;
+            if (this.addDetection(Detection.fromRecord(records, this.cars, this.carRegistry))) {
+                totalNumberOfOffences++;
+            }
+        }
 
-        importItemsFromFile(newDetections, file, line -> Detection.fromLine(line, this.cars));
+        System.out.printf("Imported %d detections from %s.\n", numberOfDetections, file.getPath());
 
-        System.out.printf("Imported %d detections from %s.\n", newDetections.size(), file.getPath());
+        return totalNumberOfOffences;
+    }
 
-        int totalNumberOfOffences = 0; // tracks the number of offences that emerges from the data in this file
+    /**
+     * validates a single detection from a continuous feed and merges any offence into this.violations at once
+     * the detection itself is not kept, and calculateTotalFines and the top violations include the offence immediately
+     *
+     * @param detection the detection, or null if it could not be parsed
+     * @return whether the detection was an offence
+     */
+    public boolean addDetection(Detection detection) {
+        if (!isOffence(detection)) return false;
 
-        for (Detection detection : newDetections) {
-            if (detection == null) continue;
-            Violation violation = detection.validatePurple();
-            if (violation != null) {
-                this.violations.merge(violation, Violation::combineOffencesCounts);
-                totalNumberOfOffences++;
+        this.mergeOffences(detection.getCar(), detection.getCity(), 1);
+        this.timeline.add(detection.getCar(), detection.getCity(), detection.getDateTime(), 1);
+        return true;
+    }
+
+    /**
+     * validates a batch of detections from a continuous feed and merges all offences into this.violations at once
+     *
+     * @param detections the detections, which may include nulls for detections that could not be parsed
+     * @return the number of offences among the detections
+     */
+    public int addDetections(Iterable<Detection> detections) {
+        int numberOfOffences = 0;
+        for (Detection detection : detections) {
+            if (this.addDetection(detection)) numberOfOffences++;
+        }
+        return numberOfOffences;
+    }
+
+    /**
+     * validates a detection against the purple rules
+     *
+     * @param detection the detection, or null if it could not be parsed
+     * @return whether the detection was an offence
+     */
+    private static boolean isOffence(Detection detection) {
+        return detection != null && detection.violatesPurple();
+    }
+
+    /**
+     * merges offences into this.violations and adds them to the live totals by car and by city
+     *
+     * @param car           the car of the offences
+     * @param city          the city of the offences
+     * @param offencesCount the number of offences
+     */
+    private void mergeOffences(Car car, String city, int offencesCount) {
+        this.violations.add(car, city, offencesCount);
+        countOffences(this.offencesByCar, car, offencesCount);
+        countOffences(this.offencesByCity, city, offencesCount);
+    }
+
+    private static <K> void countOffences(Map<K, OffencesGroup<K>> groups, K key, int offencesCount) {
+        OffencesGroup<K> group = groups.get(key);
+        if (group == null) {
+            group = new OffencesGroup<>(key, groups.size());
+            groups.put(key, group);
+        }
+        group.offencesCount += offencesCount;
+    }
+
+    /**
+     * imports the detections of a single file and aggregates its offences, without changing the tracker
+     * cars that are not known yet are collected apart from the known cars
+     *
+     * @param file      the detections file
+     * @param knownCars the registry of the cars that are known before the import, which is only searched
+     * @return the aggregated violations and the new cars of the file, in order of their first detection
+     */
+    private static DetectionsImport importDetectionsFromFile(File file, CarRegistry knownCars) {
+        DetectionsImport detectionsImport = new DetectionsImport(file, knownCars);
+
+        CsvTokenizer records = CsvTokenizer.of(file);
+        while (records.nextRecord()) {
+            detectionsImport.numberOfDetections++;
+            Detection detection = Detection.fromRecord(records, detectionsImport.newCars, detectionsImport.cars);
+            if (isOffence(detection)) {
+                detectionsImport.violations.add(detection.getCar(), detection.getCity(), 1);
+                detectionsImport.timeline.add(detection.getCar(), detection.getCity(), detection.getDateTime(), 1);
+                detectionsImport.numberOfOffences++;
             }
         }
+        return detectionsImport;
+    }
 
-        return totalNumberOfOffences;
+    /**
+     * merges the new cars and the aggregated offences of an imported file into this.cars and this.violations,
+     * in the same order as mergeDetectionsFromFile would have done
+     *
+     * @param detectionsImport the result of importDetectionsFromFile
+     * @return the number of offences in the file
+     */
+    private int mergeDetectionsImport(DetectionsImport detectionsImport) {
+        System.out.printf("Imported %d detections from %s.\n",
+                detectionsImport.numberOfDetections, detectionsImport.file.getPath());
+
+        for (Car car : detectionsImport.newCars) {
+            // an earlier file may have introduced the same car already
+            if (this.carRegistry.register(car) == car) this.cars.add(car);
+        }
+
+        ViolationTable violations = detectionsImport.violations;
+        for (int row = 0; row < violations.size(); row++) {
+            this.mergeOffences(violations.getCar(row), violations.getCity(row), violations.getOffencesCount(row));
+        }
+        this.timeline.addAll(detectionsImport.timeline);
+        return detectionsImport.numberOfOffences;
     }
 
     /**
@@ -169,83 +388,255 @@ public class TrafficTracker {
      * @return the total amount of money recovered from all violations
      */
     public double calculateTotalFines() {
-        return this.violations.aggregate(Violation::calculateRevenue);
+        return this.violations.calculateTotalFines();
     }
 
     /**
      * Prepares a list of topNumber of violations that show the highest offencesCount
      * when this.violations are aggregated by car across all cities.
+     * The list is selected from the live totals by car, without scanning this.violations.
+     * Violations with equal offences counts are listed in the order of their first offence.
      *
      * @param topNumber the requested top number of violations in the result list
      * @return a list of topNum items that provides the top aggregated violations
      */
     public List<Violation> topViolationsByCar(int topNumber) {
-        return topViolationsByComparing(topNumber, Comparator.comparing(Violation::getCar), this::mergeViolationsByCar);
+        return selectTopViolations(this.offencesByCar.values(), topNumber,
+                (car, offencesCount) -> new Violation(car, null, offencesCount));
     }
 
     /**
      * Prepares a list of topNumber of violations that show the highest offencesCount
      * when this.violations are aggregated by city across all cars.
+     * The list is selected from the live totals by city, without scanning this.violations.
+     * Violations with equal offences counts are listed in the order of their first offence.
      *
      * @param topNumber the requested top number of violations in the result list
      * @return a list of topNum items that provides the top aggregated violations
      */
     public List<Violation> topViolationsByCity(int topNumber) {
-        return topViolationsByComparing(topNumber, Comparator.comparing(Violation::getCity), this::mergeViolationsByCity);
+        return selectTopViolations(this.offencesByCity.values(), topNumber,
+                (city, offencesCount) -> new Violation(null, city, offencesCount));
     }
 
     /**
-     * Prepares a list of topNumber of violations based on two sorting logics and a merger.
+     * Selects the topNumber of violations that show the highest offencesCount
+     * when this.violations are aggregated by car across all cities,
+     * by scanning the rows of this.violations.
+     * O(n log topNumber) time and O(cars) memory.
+     * Violations with equal offences counts are listed in the order of their first offence.
      *
      * @param topNumber the requested top number of violations in the result list
-     * @param firstSort the first sorting logic
-     * @param merger    the merger
      * @return a list of topNum items that provides the top aggregated violations
      */
-    private List<Violation> topViolationsByComparing(int topNumber, Comparator<Violation> firstSort, BinaryOperator<Violation> merger) {
-        OrderedArrayList<Violation> newViolations = new OrderedArrayList<>(firstSort);
+    public List<Violation> selectTopViolationsByCar(int topNumber) {
+        return selectTopViolations(groupOffences(this.violations, this.violations::getCar), topNumber,
+                (car, offencesCount) -> new Violation(car, null, offencesCount));
+    }
 
-        for (Violation violation : this.violations) {
-            newViolations.merge(violation, merger);
-        }
+    /**
+     * Selects the topNumber of violations that show the highest offencesCount
+     * when this.violations are aggregated by city across all cars,
+     * by scanning the rows of this.violations.
+     * O(n log topNumber) time and O(cities) memory.
+     * Violations with equal offences counts are listed in the order of their first offence.
+     *
+     * @param topNumber the requested top number of violations in the result list
+     * @return a list of topNum items that provides the top aggregated violations
+     */
+    public List<Violation> selectTopViolationsByCity(int topNumber) {
+        return selectTopViolations(groupOffences(this.violations, this.violations::getCity), topNumber,
+                (city, offencesCount) -> new Violation(null, city, offencesCount));
+    }
+
+    /**
+     * Prepares a list of topNumber of violations that show the highest offencesCount
+     * when the offences in a city between two moments are aggregated by car.
+     * Only the hours of the period are visited, at the resolution of hours.
+     * Violations with equal offences counts are listed in the order of their first offence in the period.
+     *
+     * @param topNumber the requested top number of violations in the result list
+     * @param city      the city, or null for all cities
+     * @param from      the start of the period, inclusive
+     * @param to        the end of the period, exclusive
+     * @return a list of topNum items that provides the top aggregated violations in the period
+     */
+    public List<Violation> topViolationsByCar(int topNumber, String city, LocalDateTime from, LocalDateTime to) {
+        return topViolationsByCar(topNumber, this.timeline.aggregate(city, from, to));
+    }
+
+    /**
+     * Prepares a list of topNumber of violations that show the highest offencesCount
+     * when the offences in a city between two times of the day on a number of days are aggregated by car,
+     * e.g. the top offenders in Rotterdam between 06:00 and 09:00 in a week.
+     * Violations with equal offences counts are listed in the order of their first offence in the period.
+     *
+     * @param topNumber the requested top number of violations in the result list
+     * @param city      the city, or null for all cities
+     * @param fromDate  the first day, inclusive
+     * @param toDate    the last day, inclusive
+     * @param fromTime  the start of the daily window, inclusive
+     * @param toTime    the end of the daily window, exclusive
+     * @return a list of topNum items that provides the top aggregated violations in the daily windows
+     */
+    public List<Violation> topViolationsByCar(int topNumber, String city, LocalDate fromDate, LocalDate toDate,
+                                              LocalTime fromTime, LocalTime toTime) {
+        return topViolationsByCar(topNumber, this.timeline.aggregate(city, fromDate, toDate, fromTime, toTime));
+    }
+
+    /**
+     * Prepares a list of topNumber of violations that show the highest offencesCount
+     * when the offences between two moments are aggregated by city.
+     * Violations with equal offences counts are listed in the order of their first offence in the period.
+     *
+     * @param topNumber the requested top number of violations in the result list
+     * @param from      the start of the period, inclusive
+     * @param to        the end of the period, exclusive
+     * @return a list of topNum items that provides the top aggregated violations in the period
+     */
+    public List<Violation> topViolationsByCity(int topNumber, LocalDateTime from, LocalDateTime to) {
+        ViolationTable violations = this.timeline.aggregate(null, from, to);
+        return selectTopViolations(groupOffences(violations, violations::getCity), topNumber,
+                (city, offencesCount) -> new Violation(null, city, offencesCount));
+    }
 
-        newViolations.sort(Comparator.comparingInt(Violation::getOffencesCount).reversed());
-        return newViolations.subList(0, Math.min(newViolations.size(), topNumber));
+    private static List<Violation> topViolationsByCar(int topNumber, ViolationTable violations) {
+        return selectTopViolations(groupOffences(violations, violations::getCar), topNumber,
+                (car, offencesCount) -> new Violation(car, null, offencesCount));
     }
 
     /**
-     * Merges two violations if they apply to the same car.
+     * counts the offences in a city per hour, day or week, weeks start on Monday
      *
-     * @param v1 the first violation
-     * @param v2 the second violation
-     * @return A modified copy of the first violation when not the same car, otherwise a new violation with the combined offences counts.
+     * @param city   the city, or null for all cities
+     * @param period ChronoUnit.HOURS, DAYS or WEEKS
+     * @return the number of offences by the start of every period with offences, in order of time
      */
-    private Violation mergeViolationsByCar(Violation v1, Violation v2) {
-        boolean sameCar = v1.getCar() != null && v1.getCar().equals(v2.getCar());
-        if (!sameCar) return new Violation(v1.getCar(), null, v1.getOffencesCount());
+    public SortedMap<LocalDateTime, Integer> countOffencesPer(String city, ChronoUnit period) {
+        return this.timeline.countOffencesPer(city, period);
+    }
 
-        return new Violation(v1.getCar(), null, v1.getOffencesCount() + v2.getOffencesCount());
+    /**
+     * @param car the car, or a car with the same license plate
+     * @return the total number of offences of the car across all cities
+     */
+    public int getOffencesCountByCar(Car car) {
+        OffencesGroup<Car> group = this.offencesByCar.get(car);
+        return group == null ? 0 : group.offencesCount;
     }
 
     /**
-     * Merges two violations if they apply to the same city.
+     * @param city the city
+     * @return the total number of offences in the city across all cars
+     */
+    public int getOffencesCountByCity(String city) {
+        OffencesGroup<String> group = this.offencesByCity.get(city);
+        return group == null ? 0 : group.offencesCount;
+    }
+
+    /**
+     * aggregates the offences counts of the rows of the violations by key in a hash map
+     */
+    private static <K> Collection<OffencesGroup<K>> groupOffences(ViolationTable violations, IntFunction<K> keyOfRow) {
+        Map<K, OffencesGroup<K>> groups = new HashMap<>();
+        for (int row = 0; row < violations.size(); row++) {
+            countOffences(groups, keyOfRow.apply(row), violations.getOffencesCount(row));
+        }
+        return groups.values();
+    }
+
+    /**
+     * Selects the groups with the highest offences counts by a min-heap that holds at most topNumber groups.
+     * Groups with equal counts keep the order of their first offence.
      *
-     * @param v1 the first violation
-     * @param v2 the second violation
-     * @return A modified copy of the first violation when not from the same city, otherwise a new violation with the combined offences counts.
+     * @param groups    the offences counts aggregated by key
+     * @param topNumber the requested top number of violations in the result list
+     * @param creator   creates the aggregated violation of a key and its total offences count
+     * @return a list of at most topNumber aggregated violations, in descending order of offences count
      */
-    private Violation mergeViolationsByCity(Violation v1, Violation v2) {
-        boolean sameCar = v1.getCity() != null && v1.getCity().equals(v2.getCity());
-        if (!sameCar) return new Violation(null, v1.getCity(), v1.getOffencesCount());
+    private static <K> List<Violation> selectTopViolations(
+            Collection<OffencesGroup<K>> groups, int topNumber, BiFunction<K, Integer, Violation> creator) {
+        // the root of the heap is the group that drops out first: the lowest count, and of equal counts the latest group
+        Comparator<OffencesGroup<K>> dropOrder = Comparator.<OffencesGroup<K>>comparingInt(group -> group.offencesCount)
+                .thenComparing(Comparator.<OffencesGroup<K>>comparingInt(group -> group.order).reversed());
+        int limit = Math.max(0, Math.min(topNumber, groups.size()));
+        PriorityQueue<OffencesGroup<K>> top = new PriorityQueue<>(limit + 1, dropOrder);
+        for (OffencesGroup<K> group : groups) {
+            if (top.size() < limit) {
+                top.add(group);
+            } else if (limit > 0 && dropOrder.compare(group, top.peek()) > 0) {
+                top.poll();
+                top.add(group);
+            }
+        }
 
-        return new Violation(null, v1.getCity(), v1.getOffencesCount() + v2.getOffencesCount());
+        Violation[] selected = new Violation[top.size()];
+        for (int i = selected.length - 1; i >= 0; i--) {
+            OffencesGroup<K> group = top.poll();
+            selected[i] = creator.apply(group.key, group.offencesCount);
+        }
+        return new ArrayList<>(Arrays.asList(selected));
     }
 
     public OrderedList<Car> getCars() {
         return this.cars;
     }
 
+    /**
+     * the accumulated violations are kept in a table by car and city, from which this list is built on every call
+     * building the list takes O(n log n), and changes to it do not affect the tracker
+     *
+     * @return the OrderedList of the accumulated violations, ordered by license plate and city
+     */
     public OrderedList<Violation> getViolations() {
-        return this.violations;
+        return this.violations.toOrderedList();
+    }
+
+    /**
+     * the running total of offences of one car or city
+     */
+    private static class OffencesGroup<K> {
+        final K key;
+        final int order;            // the rank of the first offence of the key
+        int offencesCount;
+
+        OffencesGroup(K key, int order) {
+            this.key = key;
+            this.order = order;
+        }
+    }
+
+    /**
+     * the result of importing a single detections file by importDetectionsFromFile
+     */
+    static class DetectionsImport {
+        final File file;
+        final long fileSize;                              // the size of the file when it was imported
+        final long lastModified;                          // the modification time of the file when it was imported
+        final List<Car> newCars = new ArrayList<>();      // the cars that the file introduced, in order of detection
+        final CarRegistry cars;                           // the known cars, extended with the new cars
+        final ViolationTable violations = new ViolationTable();
+        final ViolationTimeline timeline = new ViolationTimeline();
+        int numberOfDetections;
+        int numberOfOffences;
+
+        DetectionsImport(File file, CarRegistry knownCars) {
+            this(file, file.length(), file.lastModified(), knownCars);
+        }
+
+        DetectionsImport(File file, long fileSize, long lastModified, CarRegistry knownCars) {
+            this.file = file;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.cars = new CarRegistry(knownCars);
+        }
+
+        /**
+         * @return whether this import still represents the file, as far as its size and modification time tell
+         */
+        boolean isImportOf(File file) {
+            return this.file.getPath().equals(file.getPath())
+                    && this.fileSize == file.length() && this.lastModified == file.lastModified();
+        }
     }
 }
@@ -0,0 +1,219 @@
+package models;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Reads and writes the imports of the detection files of a vault in a binary cache file,
+ * such that files that did not change since the previous import do not have to be parsed again.
+ * Every import is stored with the path, the size and the modification time of its file,
+ * together with its new cars, its violations and its offences by hour.
+ * The imports are only valid for the same known cars, which the cache identifies by a fingerprint.
+ * Plates and cities are stored once in a table of strings, the file is read from a memory-mapped buffer.
+ */
+class VaultCache {
+    private static final int MAGIC = 0x56434348;    // "VCCH"
+    private static final int VERSION = 1;
+
+    private VaultCache() {
+    }
+
+    /**
+     * calculates the fingerprint of the known cars, which covers every attribute that decides on offences
+     *
+     * @param cars the known cars
+     * @return a hash of the cars in their order
+     */
+    static long fingerprintOf(List<Car> cars) {
+        long fingerprint = cars.size();
+        for (Car car : cars) {
+            fingerprint = fingerprint * 0x100000001B3L + car.toString().hashCode();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * reads the imports from a cache file
+     *
+     * @param cacheFile   the cache file
+     * @param fingerprint the fingerprint of the known cars
+     * @param knownCars   the registry of the known cars, which is extended by every import apart
+     * @return the cached imports by the path of their file,
+     * empty if the cache file does not exist, is corrupt, or was written for other known cars
+     */
+    static Map<String, TrafficTracker.DetectionsImport> read(File cacheFile, long fingerprint, CarRegistry knownCars) {
+        Map<String, TrafficTracker.DetectionsImport> imports = new HashMap<>();
+        if (!cacheFile.isFile()) return imports;
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot map file on path: " + cacheFile.getPath(), e);
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                return imports;
+            }
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int numberOfFiles = buffer.getInt();
+            for (int i = 0; i < numberOfFiles; i++) {
+                TrafficTracker.DetectionsImport detectionsImport = readImport(buffer, strings, knownCars);
+                imports.put(detectionsImport.file.getPath(), detectionsImport);
+            }
+        } catch (RuntimeException e) {
+            // any mismatch in the format, a truncated file or an unknown car makes the whole cache useless
+            System.out.printf("Ignoring corrupt cache file %s: %s\n", cacheFile.getPath(), e);
+            imports.clear();
+        }
+        return imports;
+    }
+
+    private static TrafficTracker.DetectionsImport readImport(ByteBuffer buffer, String[] strings, CarRegistry knownCars) {
+        TrafficTracker.DetectionsImport detectionsImport = new TrafficTracker.DetectionsImport(
+                new File(strings[buffer.getInt()]), buffer.getLong(), buffer.getLong(), knownCars);
+        detectionsImport.numberOfDetections = buffer.getInt();
+        detectionsImport.numberOfOffences = buffer.getInt();
+
+        int numberOfNewCars = buffer.getInt();
+        for (int i = 0; i < numberOfNewCars; i++) {
+            Car car = new Car(strings[buffer.getInt()]);
+            detectionsImport.newCars.add(car);
+            detectionsImport.cars.register(car);
+        }
+
+        int numberOfRows = buffer.getInt();
+        for (int i = 0; i < numberOfRows; i++) {
+            detectionsImport.violations.add(carOf(detectionsImport, strings[buffer.getInt()]),
+                    strings[buffer.getInt()], buffer.getInt());
+        }
+
+        int numberOfHours = buffer.getInt();
+        for (int i = 0; i < numberOfHours; i++) {
+            long hour = buffer.getLong();
+            numberOfRows = buffer.getInt();
+            for (int j = 0; j < numberOfRows; j++) {
+                detectionsImport.timeline.add(hour, carOf(detectionsImport, strings[buffer.getInt()]),
+                        strings[buffer.getInt()], buffer.getInt());
+            }
+        }
+        return detectionsImport;
+    }
+
+    private static Car carOf(TrafficTracker.DetectionsImport detectionsImport, String licensePlate) {
+        Car car = detectionsImport.cars.get(licensePlate);
+        if (car == null) throw new IllegalStateException("Unknown car in cache: " + licensePlate);
+        return car;
+    }
+
+    /**
+     * writes the imports into a cache file, which is replaced at once when complete
+     *
+     * @param cacheFile   the cache file
+     * @param fingerprint the fingerprint of the known cars
+     * @param imports     the imports of all files of the vault
+     */
+    static void write(File cacheFile, long fingerprint, List<TrafficTracker.DetectionsImport> imports) {
+        // the files are written first, such that the table of strings is complete
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream filesBytes = new ByteArrayOutputStream();
+        try (DataOutputStream files = new DataOutputStream(filesBytes)) {
+            files.writeInt(imports.size());
+            for (TrafficTracker.DetectionsImport detectionsImport : imports) {
+                writeImport(files, detectionsImport, stringIds, strings);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write cache of file: " + cacheFile.getPath(), e);
+        }
+
+        Path temporary = cacheFile.toPath().resolveSibling(cacheFile.getName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(fingerprint);
+            output.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+            filesBytes.writeTo(output);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write cache file: " + temporary, e);
+        }
+
+        try {
+            Files.move(temporary, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot replace cache file: " + cacheFile.getPath(), e);
+        }
+    }
+
+    private static void writeImport(DataOutputStream output, TrafficTracker.DetectionsImport detectionsImport,
+                                    Map<String, Integer> stringIds, List<String> strings) throws IOException {
+        output.writeInt(idOf(detectionsImport.file.getPath(), stringIds, strings));
+        output.writeLong(detectionsImport.fileSize);
+        output.writeLong(detectionsImport.lastModified);
+        output.writeInt(detectionsImport.numberOfDetections);
+        output.writeInt(detectionsImport.numberOfOffences);
+
+        output.writeInt(detectionsImport.newCars.size());
+        for (Car car : detectionsImport.newCars) {
+            output.writeInt(idOf(car.getLicensePlate(), stringIds, strings));
+        }
+
+        writeRows(output, detectionsImport.violations, stringIds, strings);
+
+        SortedMap<Long, ViolationTable> hours = detectionsImport.timeline.getHours();
+        output.writeInt(hours.size());
+        for (Map.Entry<Long, ViolationTable> hour : hours.entrySet()) {
+            output.writeLong(hour.getKey());
+            writeRows(output, hour.getValue(), stringIds, strings);
+        }
+    }
+
+    private static void writeRows(DataOutputStream output, ViolationTable violations,
+                                  Map<String, Integer> stringIds, List<String> strings) throws IOException {
+        output.writeInt(violations.size());
+        for (int row = 0; row < violations.size(); row++) {
+            output.writeInt(idOf(violations.getCar(row).getLicensePlate(), stringIds, strings));
+            output.writeInt(idOf(violations.getCity(row), stringIds, strings));
+            output.writeInt(violations.getOffencesCount(row));
+        }
+    }
+
+    private static int idOf(String string, Map<String, Integer> stringIds, List<String> strings) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(string, id);
+            strings.add(string);
+        }
+        return id;
+    }
+}
@@ -1,20 +1,18 @@
 package models;
 
-import java.util.Comparator;
-
 public class Violation {
     private final Car car;
+    private final long plateKey;            // the plate key of the car, for comparing without visiting the car
     private final String city;
     private int offencesCount;
 
     public Violation(Car car, String city) {
-        this.car = car;
-        this.city = city;
-        this.offencesCount = 1;
+        this(car, city, 1);
     }
 
     public Violation(Car car, String city, int offencesCount) {
         this.car = car;
+        this.plateKey = car == null ? CarRegistry.NO_KEY : car.getPlateKey();
         this.city = city;
         this.offencesCount = offencesCount;
     }
@@ -22,9 +20,10 @@ public class Violation {
     public static int compareByLicensePlateAndCity(Violation v1, Violation v2) {
         if (v1 == null || v2 == null) throw new IllegalArgumentException("Violation cannot be null");
 
-        return Comparator.comparing(Violation::getCar)
-                .thenComparing(Violation::getCity)
-                .compare(v1, v2);
+        int result = v1.plateKey != CarRegistry.NO_KEY && v2.plateKey != CarRegistry.NO_KEY
+                ? Long.compare(v1.plateKey, v2.plateKey)
+                : v1.car.compareTo(v2.car);
+        return result != 0 ? result : v1.city.compareTo(v2.city);
     }
 
     /**
@@ -53,6 +52,13 @@ public class Violation {
         return car;
     }
 
+    /**
+     * @return the plate key of the car, or CarRegistry.NO_KEY if there is no car or its plate cannot be encoded
+     */
+    public long getPlateKey() {
+        return plateKey;
+    }
+
     public String getCity() {
         return city;
     }
@@ -66,10 +72,18 @@ public class Violation {
     }
 
     public double calculateRevenue() {
+        return offencesCount * finePerOffence(car);
+    }
+
+    /**
+     * @param car the car of a violation
+     * @return the fine of a single offence: Trucks pay €25 per offence, Coaches €35 per offence
+     */
+    public static double finePerOffence(Car car) {
         if (car.getCarType() == Car.CarType.Truck) {
-            return offencesCount * 25;
+            return 25;
         } else if (car.getCarType() == Car.CarType.Coach) {
-            return offencesCount * 35;
+            return 35;
         }
         return 0;
     }
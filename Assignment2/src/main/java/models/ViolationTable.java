@@ -0,0 +1,202 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Accumulates offences by car and by city in columns of primitive arrays, one row for every combination.
+ * The rows are found by an open-addressing hash on the plate key of the car and the id of the city,
+ * such that merging an offence increments the counter of its row in place, without creating a Violation.
+ * Rows are kept in the order of their first offence, Violation instances are only created on request.
+ */
+public class ViolationTable {
+    private static final int FREE = -1;
+
+    private Car[] cars = new Car[16];               // the car of every row
+    private long[] plateKeys = new long[16];        // the plate key of the car of every row
+    private int[] cityIds = new int[16];            // the id of the city of every row
+    private int[] offencesCounts = new int[16];     // the number of offences of every row
+    private int size;                               // the number of rows
+
+    private int[] slots = new int[32];              // the rows by hash, FREE if the slot is free
+
+    private final Map<String, Integer> cityIdsByName = new HashMap<>();
+    private final List<String> cities = new ArrayList<>();      // the name of every city id
+
+    public ViolationTable() {
+        Arrays.fill(slots, FREE);
+    }
+
+    /**
+     * adds offences of a car in a city to the counter of their row, or to a new row
+     *
+     * @param car           the car
+     * @param city          the city
+     * @param offencesCount the number of offences
+     * @return the row of the car and the city
+     */
+    public int add(Car car, String city, int offencesCount) {
+        int cityId = cityIdOf(city);
+        int mask = slots.length - 1;
+        int slot = slotOf(car, cityId, mask);
+        for (; slots[slot] != FREE; slot = (slot + 1) & mask) {
+            int row = slots[slot];
+            if (matches(row, car, cityId)) {
+                offencesCounts[row] += offencesCount;
+                return row;
+            }
+        }
+
+        if (size == cars.length) growColumns();
+        int row = size++;
+        cars[row] = car;
+        plateKeys[row] = car.getPlateKey();
+        cityIds[row] = cityId;
+        offencesCounts[row] = offencesCount;
+        slots[slot] = row;
+        if (size * 2 > slots.length) growSlots();
+        return row;
+    }
+
+    /**
+     * adds all rows of another table, in their order
+     *
+     * @param other the other table
+     */
+    public void addAll(ViolationTable other) {
+        for (int row = 0; row < other.size; row++) {
+            add(other.cars[row], other.cities.get(other.cityIds[row]), other.offencesCounts[row]);
+        }
+    }
+
+    /**
+     * @return the row of the car and the city, or -1 if they have no offences
+     */
+    public int indexOf(Car car, String city) {
+        Integer cityId = cityIdsByName.get(city);
+        if (cityId == null) return -1;
+        int mask = slots.length - 1;
+        for (int slot = slotOf(car, cityId, mask); slots[slot] != FREE; slot = (slot + 1) & mask) {
+            if (matches(slots[slot], car, cityId)) return slots[slot];
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Car getCar(int row) {
+        return cars[row];
+    }
+
+    public String getCity(int row) {
+        return cities.get(cityIds[row]);
+    }
+
+    public int getOffencesCount(int row) {
+        return offencesCounts[row];
+    }
+
+    /**
+     * @return a new Violation with the car, city and offences count of the row
+     */
+    public Violation getViolation(int row) {
+        return new Violation(cars[row], getCity(row), offencesCounts[row]);
+    }
+
+    /**
+     * calculates the total revenue of fines of all rows, like the sum of Violation.calculateRevenue
+     *
+     * @return the total amount of money recovered from all violations
+     */
+    public double calculateTotalFines() {
+        double totalFines = 0;
+        for (int row = 0; row < size; row++) {
+            totalFines += offencesCounts[row] * Violation.finePerOffence(cars[row]);
+        }
+        return totalFines;
+    }
+
+    /**
+     * calculates the total sum of contributions of all rows, like OrderedList.aggregate of the rows as violations,
+     * without collecting or sorting the rows
+     *
+     * @param mapper a function that calculates the contribution of a single violation
+     * @return the total sum of all contributions
+     */
+    public double aggregate(Function<Violation, Double> mapper) {
+        double sum = 0.0;
+        for (int row = 0; row < size; row++) {
+            sum += mapper.apply(getViolation(row));
+        }
+        return sum;
+    }
+
+    /**
+     * @return a new list with a Violation for every row, ordered by license plate and city
+     */
+    public OrderedList<Violation> toOrderedList() {
+        OrderedArrayList<Violation> violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        for (int row = 0; row < size; row++) {
+            violations.add(getViolation(row));
+        }
+        violations.sort();
+        return violations;
+    }
+
+    public void clear() {
+        Arrays.fill(cars, 0, size, null);
+        Arrays.fill(slots, FREE);
+        size = 0;
+        cityIdsByName.clear();
+        cities.clear();
+    }
+
+    private int cityIdOf(String city) {
+        Integer cityId = cityIdsByName.get(city);
+        if (cityId == null) {
+            cityId = cities.size();
+            cityIdsByName.put(city, cityId);
+            cities.add(city);
+        }
+        return cityId;
+    }
+
+    private boolean matches(int row, Car car, int cityId) {
+        if (cityIds[row] != cityId) return false;
+        long plateKey = car.getPlateKey();
+        if (plateKey != CarRegistry.NO_KEY) return plateKeys[row] == plateKey;
+        return plateKeys[row] == CarRegistry.NO_KEY && cars[row].equals(car);
+    }
+
+    private static int slotOf(Car car, int cityId, int mask) {
+        long plateKey = car.getPlateKey();
+        long hash = (plateKey != CarRegistry.NO_KEY ? plateKey : car.hashCode()) * 31 + cityId;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private void growColumns() {
+        int capacity = cars.length * 2;
+        cars = Arrays.copyOf(cars, capacity);
+        plateKeys = Arrays.copyOf(plateKeys, capacity);
+        cityIds = Arrays.copyOf(cityIds, capacity);
+        offencesCounts = Arrays.copyOf(offencesCounts, capacity);
+    }
+
+    private void growSlots() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, FREE);
+        int mask = slots.length - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = slotOf(cars[row], cityIds[row], mask);
+            while (slots[slot] != FREE) slot = (slot + 1) & mask;
+            slots[slot] = row;
+        }
+    }
+}
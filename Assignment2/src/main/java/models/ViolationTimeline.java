@@ -0,0 +1,171 @@
+package models;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Accumulates offences by the hour of their detection, in a ViolationTable by car and city for every hour.
+ * Queries over a period only visit the hours of that period, and aggregate the rows of their tables,
+ * such that they do not depend on the number of offences outside the period.
+ * All periods have the resolution of hours: an hour belongs to a period if it starts within that period.
+ */
+public class ViolationTimeline {
+    private static final long SECONDS_PER_HOUR = 3600;
+
+    // the offences of every hour with offences, by the number of hours since 1970-01-01T00:00
+    private final TreeMap<Long, ViolationTable> hours = new TreeMap<>();
+
+    /**
+     * adds offences of a car in a city to the hour of their detection
+     *
+     * @param car           the car
+     * @param city          the city
+     * @param dateTime      the date and time of the detection
+     * @param offencesCount the number of offences
+     */
+    public void add(Car car, String city, LocalDateTime dateTime, int offencesCount) {
+        hours.computeIfAbsent(hourOf(dateTime), hour -> new ViolationTable()).add(car, city, offencesCount);
+    }
+
+    /**
+     * adds all offences of another timeline, hour by hour
+     *
+     * @param other the other timeline
+     */
+    public void addAll(ViolationTimeline other) {
+        for (Map.Entry<Long, ViolationTable> hour : other.hours.entrySet()) {
+            hours.computeIfAbsent(hour.getKey(), key -> new ViolationTable()).addAll(hour.getValue());
+        }
+    }
+
+    /**
+     * adds offences of a car in a city to an hour
+     *
+     * @param hour the number of the hour since 1970-01-01T00:00
+     */
+    void add(long hour, Car car, String city, int offencesCount) {
+        hours.computeIfAbsent(hour, key -> new ViolationTable()).add(car, city, offencesCount);
+    }
+
+    /**
+     * @return the offences of every hour with offences, by the number of the hour since 1970-01-01T00:00
+     */
+    SortedMap<Long, ViolationTable> getHours() {
+        return Collections.unmodifiableSortedMap(hours);
+    }
+
+    public void clear() {
+        hours.clear();
+    }
+
+    /**
+     * aggregates the offences in a city between two moments
+     *
+     * @param city the city, or null for all cities
+     * @param from the start of the period, inclusive
+     * @param to   the end of the period, exclusive
+     * @return a new table of the offences in the period by car and city
+     */
+    public ViolationTable aggregate(String city, LocalDateTime from, LocalDateTime to) {
+        return aggregate(city, from, to, LocalTime.MIN, null);
+    }
+
+    /**
+     * aggregates the offences in a city between two times of the day, on every day between two dates,
+     * like between 06:00 and 09:00 in a week
+     *
+     * @param city     the city, or null for all cities
+     * @param fromDate the first day, inclusive
+     * @param toDate   the last day, inclusive
+     * @param fromTime the start of the daily window, inclusive
+     * @param toTime   the end of the daily window, exclusive
+     * @return a new table of the offences in the daily windows by car and city
+     */
+    public ViolationTable aggregate(String city, LocalDate fromDate, LocalDate toDate,
+                                    LocalTime fromTime, LocalTime toTime) {
+        return aggregate(city, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), fromTime, toTime);
+    }
+
+    /**
+     * counts the offences in a city per hour, day or week, ordered by the start of the period
+     * weeks start on Monday
+     *
+     * @param city   the city, or null for all cities
+     * @param period ChronoUnit.HOURS, DAYS or WEEKS
+     * @return the number of offences by the start of every period with offences
+     */
+    public SortedMap<LocalDateTime, Integer> countOffencesPer(String city, ChronoUnit period) {
+        if (period != ChronoUnit.HOURS && period != ChronoUnit.DAYS && period != ChronoUnit.WEEKS) {
+            throw new IllegalArgumentException("Unsupported period: " + period);
+        }
+
+        SortedMap<LocalDateTime, Integer> offencesCounts = new TreeMap<>();
+        for (Map.Entry<Long, ViolationTable> hour : hours.entrySet()) {
+            int offencesCount = countOffences(hour.getValue(), city);
+            if (offencesCount == 0) continue;
+
+            LocalDateTime start = startOf(hour.getKey());
+            if (period == ChronoUnit.DAYS) {
+                start = start.truncatedTo(ChronoUnit.DAYS);
+            } else if (period == ChronoUnit.WEEKS) {
+                start = start.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+            offencesCounts.merge(start, offencesCount, Integer::sum);
+        }
+        return offencesCounts;
+    }
+
+    /**
+     * @param toTime the end of the daily window, or null if every hour of the day is included
+     */
+    private ViolationTable aggregate(String city, LocalDateTime from, LocalDateTime to,
+                                     LocalTime fromTime, LocalTime toTime) {
+        ViolationTable violations = new ViolationTable();
+        for (Map.Entry<Long, ViolationTable> hour : hours.subMap(firstHourFrom(from), firstHourFrom(to)).entrySet()) {
+            if (toTime != null) {
+                LocalTime time = startOf(hour.getKey()).toLocalTime();
+                if (time.isBefore(fromTime) || !time.isBefore(toTime)) continue;
+            }
+            ViolationTable offences = hour.getValue();
+            for (int row = 0; row < offences.size(); row++) {
+                if (city == null || city.equals(offences.getCity(row))) {
+                    violations.add(offences.getCar(row), offences.getCity(row), offences.getOffencesCount(row));
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static int countOffences(ViolationTable offences, String city) {
+        int offencesCount = 0;
+        for (int row = 0; row < offences.size(); row++) {
+            if (city == null || city.equals(offences.getCity(row))) offencesCount += offences.getOffencesCount(row);
+        }
+        return offencesCount;
+    }
+
+    private static long hourOf(LocalDateTime dateTime) {
+        // the zone does not matter, as long as all hours are numbered alike
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    /**
+     * @return the first hour that starts at or after the moment
+     */
+    private static long firstHourFrom(LocalDateTime dateTime) {
+        return -Math.floorDiv(-dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    private static LocalDateTime startOf(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * SECONDS_PER_HOUR, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,134 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CarRegistryTest {
+
+    TrafficTracker trafficTracker;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        trafficTracker = new TrafficTracker();
+        trafficTracker.importCarsFromVault("/2022-09/cars.txt");
+    }
+
+    @Test
+    public void keysCompareLikeLicensePlates() {
+        List<String> plates = new ArrayList<>(List.of("", "-", "0", "0-HOQ-6413", "1-TTT-01", "1-TTT-010", "1-TTT-1",
+                "AA-11-BB", "Z", "ZZZZZZZZZZZZ", "999-ZZ-9"));
+        for (Car car : trafficTracker.getCars()) plates.add(car.getLicensePlate());
+
+        for (String plate1 : plates) {
+            long key1 = CarRegistry.encode(plate1);
+            assertNotEquals(CarRegistry.NO_KEY, key1, plate1);
+            for (String plate2 : plates) {
+                assertEquals(Integer.signum(plate1.compareTo(plate2)),
+                        Long.signum(Long.compare(key1, CarRegistry.encode(plate2))),
+                        "the keys of %s and %s should compare like the plates".formatted(plate1, plate2));
+            }
+        }
+
+        for (String plate : new String[]{"aa-11-bb", "AA 11 BB", "ZZZZZZZZZZZZZ", "Å-1"}) {
+            assertEquals(CarRegistry.NO_KEY, CarRegistry.encode(plate), plate);
+        }
+    }
+
+    @Test
+    public void carsWithUnencodablePlatesCompareByString() {
+        Car dutch = new Car("AA-11-BB");
+        Car foreign = new Car("aa-11-bb");
+        Car foreign2 = new Car("aa-11-bb");
+        assertEquals(CarRegistry.NO_KEY, foreign.getPlateKey());
+        assertEquals("AA-11-BB".compareTo("aa-11-bb"), dutch.compareTo(foreign));
+        assertEquals(foreign, foreign2);
+        assertNotEquals(dutch, foreign);
+        assertEquals(0, foreign.compareTo(foreign2));
+
+        Violation violation = new Violation(dutch, "Amsterdam");
+        assertEquals(dutch.getPlateKey(), violation.getPlateKey());
+        assertTrue(Violation.compareByLicensePlateAndCity(violation, new Violation(foreign, "Amsterdam")) < 0);
+        assertTrue(Violation.compareByLicensePlateAndCity(violation, new Violation(dutch, "Leiden")) < 0);
+        assertEquals(0, Violation.compareByLicensePlateAndCity(violation, new Violation(new Car("AA-11-BB"), "Amsterdam")));
+    }
+
+    @Test
+    public void registerFindsTheFirstCarOfAPlate() {
+        CarRegistry registry = new CarRegistry();
+        for (Car car : trafficTracker.getCars()) {
+            assertSame(car, registry.register(car));
+        }
+        assertEquals(trafficTracker.getCars().size(), registry.size());
+        for (Car car : trafficTracker.getCars()) {
+            assertSame(car, registry.get(car.getPlateKey()));
+            assertSame(car, registry.get(car.getLicensePlate()));
+            assertSame(car, registry.register(new Car(car.getLicensePlate())),
+                    "a car with the same plate should not replace the registered car");
+        }
+        assertNull(registry.get(CarRegistry.encode("XX-00-XX")));
+        assertNull(registry.get(CarRegistry.NO_KEY));
+
+        Car foreign = new Car("d-ab-123");
+        assertSame(foreign, registry.register(foreign));
+        assertSame(foreign, registry.get("d-ab-123"));
+        assertEquals(trafficTracker.getCars().size() + 1, registry.size());
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertNull(registry.get(foreign.getLicensePlate()));
+    }
+
+    @Test
+    public void childRegistersApartFromItsParent() {
+        CarRegistry parent = new CarRegistry();
+        Car known = trafficTracker.getCars().get(0);
+        parent.register(known);
+
+        CarRegistry child = new CarRegistry(parent);
+        Car unknown = new Car("XX-00-XX");
+        Car foreign = new Car("d-ab-123");
+        assertSame(known, child.register(new Car(known.getLicensePlate())));
+        assertSame(unknown, child.register(unknown));
+        assertSame(foreign, child.register(foreign));
+        assertSame(known, child.get(known.getLicensePlate()));
+        assertSame(unknown, child.get(unknown.getPlateKey()));
+        assertEquals(2, child.size());
+        assertNull(parent.get(unknown.getLicensePlate()), "the parent should not be changed");
+        assertNull(parent.get(foreign.getLicensePlate()), "the parent should not be changed");
+    }
+
+    @Test
+    public void detectionsFindRegisteredCarsByKey() {
+        String text = "VZB-35-B, Leiden, 2022-09-06T08:00:00\nXX-00-XX, Leiden, 2022-09-06T08:00:00\n"
+                + " XX-00-XX ,Delft, 2022-09-06T09:00:00\nd-ab-123, Delft, 2022-09-06T09:00:00\n"
+                + "d-ab-123, Delft, 2022-09-06T10:00:00\nVZB-35-B, Delft\n";
+        CsvTokenizer records = new CsvTokenizer(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        List<Car> cars = new ArrayList<>(trafficTracker.getCars());
+        CarRegistry registry = new CarRegistry();
+        for (Car car : cars) registry.register(car);
+
+        List<Detection> detections = new ArrayList<>();
+        while (records.nextRecord()) detections.add(Detection.fromRecord(records, cars, registry));
+
+        OrderedList<Car> knownCars = trafficTracker.getCars();
+        assertSame(knownCars.get(knownCars.indexOf(new Car("VZB-35-B"))), detections.get(0).getCar());
+        assertSame(detections.get(1).getCar(), detections.get(2).getCar());
+        assertSame(detections.get(3).getCar(), detections.get(4).getCar());
+        assertEquals(LocalDateTime.of(2022, 9, 6, 9, 0), detections.get(2).getDateTime());
+        assertEquals("Delft", detections.get(2).getCity());
+        assertEquals(CarRegistry.encode("XX-00-XX"), detections.get(1).getPlateKey());
+        assertNull(detections.get(5));
+        assertEquals(knownCars.size() + 2, cars.size(), "only the two unknown cars should have been added");
+        assertEquals(knownCars.size() + 2, registry.size());
+    }
+}
@@ -4,10 +4,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 
@@ -83,6 +85,32 @@ public class CarsListTest {
         assertSame(volvo1, cars.get(3));
     }
 
+    @Test
+    public void sortMergesUnsortedSectionIntoSortedSection() {
+        cars.sort();
+        Car scoda2 = new Car(scoda.getLicensePlate());
+        cars.addAll(List.of(daf3, scoda2, volvo2, daf2));
+        cars.add(3, new Car("1-BBB-01"));
+        cars.sort();
+        assertEquals(cars.size(), cars.nSorted);
+        checkRepresentationInvariant(this.cars);
+        assertEquals(initialCars.size() + 5, cars.size());
+        assertSame(scoda, cars.get(0));
+        assertSame(scoda2, cars.get(1),
+                "a merged item shall follow a sorted item that it is equal to");
+
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            cars.add(new Car("%d-XXX-%02d".formatted(random.nextInt(100), random.nextInt(100))));
+            if (i % 100 == 0) cars.sort();
+        }
+        List<Car> expected = new ArrayList<>(cars);
+        expected.sort(cars.getOrdening());
+        cars.sort();
+        assertEquals(expected, cars);
+        checkRepresentationInvariant(this.cars);
+    }
+
     @Test
     public void indexOfByIterativeBinarySearchFindsAllItems() {
         cars.sort();
@@ -0,0 +1,125 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how merges into one list of violations scale with the number of importer threads,
+ * for the lock-free ConcurrentOrderedList versus a HashedOrderedArrayList that is guarded by a single lock.
+ * Every operation merges all offences of the 2022-09 vault ten times, split evenly over the threads,
+ * such that about 500 distinct violations of cars in cities are contended for by 1 up to 32 threads.
+ * Run with the main method from the test classpath, which also reports the allocation rates of the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConcurrentMergeBenchmark {
+    private static final String VAULT_NAME = "/2022-09";
+    private static final int REPEATS = 10;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    private List<Violation> offences;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws URISyntaxException {
+        TrafficTracker trafficTracker = new TrafficTracker();
+        trafficTracker.importCarsFromVault(VAULT_NAME + "/cars.txt");
+
+        List<Violation> vaultOffences = new ArrayList<>();
+        Path detections = Path.of(TrafficTracker.class.getResource(VAULT_NAME + "/detections").toURI());
+        try (Stream<Path> files = Files.walk(detections)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".txt")).sorted().toList()) {
+                List<Detection> newDetections = new ArrayList<>();
+                TrafficTracker.importItemsFromFile(newDetections, file.toFile(),
+                        line -> Detection.fromLine(line, trafficTracker.getCars()));
+                newDetections.stream()
+                        .filter(Objects::nonNull)
+                        .map(Detection::validatePurple)
+                        .filter(Objects::nonNull)
+                        .forEach(vaultOffences::add);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        offences = new ArrayList<>();
+        for (int i = 0; i < REPEATS; i++) offences.addAll(vaultOffences);
+
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * merges the offences into the list, every thread merges its own slice of the offences
+     */
+    private int mergeByThreads(OrderedList<Violation> violations, boolean locked)
+            throws ExecutionException, InterruptedException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Violation> slice = offences.subList(t * offences.size() / threads, (t + 1) * offences.size() / threads);
+            futures.add(executor.submit(() -> {
+                for (Violation offence : slice) {
+                    if (locked) {
+                        synchronized (violations) {
+                            violations.merge(offence, Violation::combineOffencesCounts);
+                        }
+                    } else {
+                        violations.merge(offence, Violation::combineOffencesCounts);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        return violations.size();
+    }
+
+    @Benchmark
+    public int mergeIntoConcurrentList() throws ExecutionException, InterruptedException {
+        return mergeByThreads(new ConcurrentOrderedList<>(Violation::compareByLicensePlateAndCity), false);
+    }
+
+    @Benchmark
+    public int mergeIntoLockedHashedList() throws ExecutionException, InterruptedException {
+        return mergeByThreads(new HashedOrderedArrayList<>(Violation::compareByLicensePlateAndCity,
+                violation -> List.of(violation.getCar(), violation.getCity())), true);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ConcurrentMergeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
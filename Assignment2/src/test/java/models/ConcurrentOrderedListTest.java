@@ -0,0 +1,92 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentOrderedListTest {
+
+    Car volvo, daf, scoda;
+    ConcurrentOrderedList<Violation> violations;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        volvo = new Car("1-TTT-01", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        daf = new Car("1-CCC-01", 5, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        scoda = new Car("1-AAA-02", 6, Car.CarType.Car, Car.FuelType.Gasoline, LocalDate.of(2014, 1, 31));
+        violations = new ConcurrentOrderedList<>(Violation::compareByLicensePlateAndCity);
+    }
+
+    @Test
+    public void mergeKeepsTheListSorted() {
+        assertTrue(violations.merge(new Violation(volvo, "Rotterdam"), Violation::combineOffencesCounts));
+        assertTrue(violations.merge(new Violation(volvo, "Amsterdam"), Violation::combineOffencesCounts));
+        assertTrue(violations.merge(new Violation(daf, "Amsterdam"), Violation::combineOffencesCounts));
+        assertFalse(violations.merge(new Violation(volvo, "Amsterdam", 2), Violation::combineOffencesCounts));
+        assertFalse(violations.merge(null, Violation::combineOffencesCounts));
+
+        assertEquals("[1-CCC-01/Amsterdam/1, 1-TTT-01/Amsterdam/3, 1-TTT-01/Rotterdam/1]", violations.toString());
+        assertEquals(3, violations.size());
+        assertEquals(1, violations.indexOfByBinarySearch(new Violation(volvo, "Amsterdam")));
+        assertEquals(2, violations.indexOf(new Violation(volvo, "Rotterdam")));
+        assertEquals(-1, violations.indexOfByBinarySearch(new Violation(daf, "Rotterdam")));
+        assertEquals(-1, violations.indexOfByBinarySearch(null));
+        assertEquals(-1, violations.indexOf("Amsterdam"));
+        assertEquals(3, violations.get(1).getOffencesCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> violations.get(3));
+        assertEquals(35 + 3 * 25 + 25, violations.aggregate(Violation::calculateRevenue));
+
+        assertFalse(violations.add(new Violation(daf, "Amsterdam", 5)), "items are unique by the ordening");
+        assertTrue(violations.remove(new Violation(daf, "Amsterdam")));
+        assertEquals("1-TTT-01/Rotterdam/1", violations.remove(1).toString());
+        assertEquals("[1-TTT-01/Amsterdam/3]", violations.toString());
+        assertThrows(UnsupportedOperationException.class, () -> violations.add(0, new Violation(scoda, "Leiden")));
+        violations.sort();
+        assertEquals(1, violations.size());
+    }
+
+    @Test
+    public void concurrentMergesLoseNoOffences() throws Exception {
+        final int numberOfThreads = 8;
+        final int mergesPerThread = 20000;
+        Car[] cars = {volvo, daf, scoda};
+        String[] cities = {"Amsterdam", "Rotterdam", "Leiden", "Utrecht"};
+        AtomicInteger added = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numberOfThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < mergesPerThread; i++) {
+                        Violation violation = new Violation(cars[(i + thread) % cars.length], cities[i % cities.length]);
+                        if (violations.merge(violation, Violation::combineOffencesCounts)) added.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(cars.length * cities.length, violations.size());
+        assertEquals(violations.size(), added.get(), "every combination should have been added exactly once");
+        assertEquals(numberOfThreads * mergesPerThread,
+                violations.stream().mapToInt(Violation::getOffencesCount).sum());
+        for (int i = 1; i < violations.size(); i++) {
+            assertTrue(Violation.compareByLicensePlateAndCity(violations.get(i - 1), violations.get(i)) < 0);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+    }
+
+    private static CsvTokenizer tokenize(String text) {
+        return new CsvTokenizer(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void tokenizesTrimmedFieldsOfEveryLine() {
+        CsvTokenizer records = tokenize("AA-11-BB , 12,Car,\tDiesel ,2020-01-31\r\n\n 1-TTT-01,-3,Truck,Lpg,1999-12-31\n  \n\n");
+
+        assertTrue(records.nextRecord());
+        assertEquals(5, records.numberOfFields());
+        assertEquals("AA-11-BB", records.nextString());
+        assertEquals(12, records.nextInt());
+        assertEquals(Car.CarType.Car, records.nextEnum(Car.CarType.values()));
+        assertEquals(Car.FuelType.Diesel, records.nextEnum(Car.FuelType.values()));
+        assertEquals(LocalDate.of(2020, 1, 31), records.nextDate());
+        assertFalse(records.hasNextField());
+
+        assertTrue(records.nextRecord(), "an empty line in between is a record, like with a Scanner");
+        assertEquals(1, records.numberOfFields());
+        assertEquals("", records.nextString());
+
+        assertTrue(records.nextRecord());
+        assertEquals("1-TTT-01", records.nextString());
+        assertEquals(-3, records.nextInt());
+        assertFalse(records.nextRecord(), "trailing blank lines are no records");
+        assertFalse(tokenize("").nextRecord());
+    }
+
+    @Test
+    public void countsFieldsLikeSplit() {
+        for (String line : new String[]{"", "a", "a,b,c", "a,b,c,", "a,,c,,", ",", ",,", " , ", "a, ,"}) {
+            CsvTokenizer records = tokenize(line + "\nlast");
+            records.nextRecord();
+            assertEquals(line.split(",").length, records.numberOfFields(),
+                    "the number of fields of '%s'".formatted(line));
+        }
+    }
+
+    @Test
+    public void parsesDatesAndTimes() {
+        CsvTokenizer records = tokenize("2022-09-06T08:05:06, 2022-09-06T08:05, 2022-09-06T08:05:06.5, 2024-02-29");
+        records.nextRecord();
+        assertEquals(LocalDateTime.of(2022, 9, 6, 8, 5, 6), records.nextDateTime());
+        assertEquals(LocalDateTime.of(2022, 9, 6, 8, 5), records.nextDateTime());
+        assertEquals(LocalDateTime.of(2022, 9, 6, 8, 5, 6, 500000000), records.nextDateTime());
+        assertEquals(LocalDate.of(2024, 2, 29), records.nextDate());
+    }
+
+    @Test
+    public void rejectsFieldsLikeTheJdkParsers() {
+        CsvTokenizer records = tokenize("x, 2147483648, 1 2, Bus, diesel, 2022-13-01, abcd-01-01, 2022-09-06T24:00:00, 2023-02-29");
+        records.nextRecord();
+        assertThrows(NumberFormatException.class, records::nextInt);
+        assertThrows(NumberFormatException.class, records::nextInt);
+        assertThrows(NumberFormatException.class, records::nextInt);
+        assertThrows(IllegalArgumentException.class, () -> records.nextEnum(Car.CarType.values()));
+        assertThrows(IllegalArgumentException.class, () -> records.nextEnum(Car.FuelType.values()),
+                "enum names are case sensitive");
+        assertThrows(DateTimeException.class, records::nextDate);
+        assertThrows(DateTimeException.class, records::nextDate);
+        assertThrows(DateTimeException.class, records::nextDateTime);
+        assertThrows(DateTimeException.class, records::nextDate);
+        assertThrows(IllegalStateException.class, records::nextString);
+    }
+
+    @Test
+    public void poolsRepeatedStrings() {
+        CsvTokenizer records = tokenize("AA-11-BB, Amsterdam\n  AA-11-BB ,Amsterdam\nÅ-1,Ålesund\nÅ-1,Ålesund\n");
+        records.nextRecord();
+        String plate = records.nextPooledString();
+        String city = records.nextPooledString();
+        records.nextRecord();
+        assertSame(plate, records.nextPooledString());
+        assertSame(city, records.nextPooledString());
+
+        records.nextRecord();
+        assertEquals("Å-1", records.nextPooledString(), "non-ASCII strings are decoded, but not pooled");
+
+        // the pool grows beyond its initial capacity
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("plate-").append(i).append(i < 999 ? "," : "\n");
+        }
+        CsvTokenizer many = tokenize(text.toString().repeat(2));
+        List<String> firstPass = new ArrayList<>();
+        many.nextRecord();
+        while (many.hasNextField()) firstPass.add(many.nextPooledString());
+        many.nextRecord();
+        for (String pooled : firstPass) {
+            assertSame(pooled, many.nextPooledString());
+        }
+    }
+
+    @Test
+    public void convertsRecordsLikeTextLines() throws URISyntaxException {
+        File carsFile = new File(TrafficTracker.class.getResource("/2022-09/cars.txt").toURI());
+        List<Car> carsFromLines = new ArrayList<>();
+        List<Car> carsFromRecords = new ArrayList<>();
+        assertEquals(TrafficTracker.importItemsFromFile(carsFromLines, carsFile, Car::fromLine),
+                TrafficTracker.importRecordsFromFile(carsFromRecords, carsFile, Car::fromRecord));
+        assertEquals(carsFromLines.toString(), carsFromRecords.toString());
+
+        File detectionsFile = new File(TrafficTracker.class.getResource("/2022-09/detections/Leiden/5.txt").toURI());
+        List<Car> knownCars = new ArrayList<>(carsFromLines);
+        CarRegistry registry = new CarRegistry();
+        knownCars.forEach(registry::register);
+        List<Detection> detectionsFromLines = new ArrayList<>();
+        List<Detection> detectionsFromRecords = new ArrayList<>();
+        TrafficTracker.importItemsFromFile(detectionsFromLines, detectionsFile, line -> Detection.fromLine(line, carsFromLines));
+        TrafficTracker.importRecordsFromFile(detectionsFromRecords, detectionsFile, record -> Detection.fromRecord(record, knownCars, registry));
+        assertEquals(detectionsFromLines.toString(), detectionsFromRecords.toString());
+        assertEquals(carsFromLines.toString(), knownCars.toString(),
+                "unknown cars should be added in the same order");
+
+        List<Detection> corrupt = new ArrayList<>();
+        CsvTokenizer records = tokenize("AA-11-BB, Amsterdam\nAA-11-BB, Amsterdam, 2022-09-31T00:00:00\n");
+        while (records.nextRecord()) corrupt.add(Detection.fromRecord(records, knownCars, registry));
+        assertNull(corrupt.get(0));
+        assertNull(corrupt.get(1));
+        assertEquals("AA-11-BB", knownCars.get(knownCars.size() - 1).getLicensePlate(),
+                "the car of a detection with a corrupt date is still registered, like with fromLine");
+    }
+}
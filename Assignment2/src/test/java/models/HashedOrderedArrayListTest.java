@@ -0,0 +1,156 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedOrderedArrayListTest {
+
+    Car scoda, audi, mercedes, volvo1, volvo2, daf1, daf2;
+
+    HashedOrderedArrayList<Car> cars;
+    List<Car> initialCars;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        scoda = new Car("1-AAA-02", 6, Car.CarType.Car, Car.FuelType.Gasoline, LocalDate.of(2014,1,31));
+        audi = new Car("AA-11-BB", 4, Car.CarType.Car, Car.FuelType.Diesel, LocalDate.of(1998,1,31));
+        mercedes = new Car("VV-11-BB", 4, Car.CarType.Van, Car.FuelType.Diesel, LocalDate.of(1998,1,31));
+        volvo1 = new Car("1-TTT-01", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009,1,31));
+        volvo2 = new Car("1-TTT-02", 6, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2011,1,31));
+        daf1 = new Car("1-CCC-01", 5, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2009,1,31));
+        daf2 = new Car("1-CCC-02", 6, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2011,1,31));
+
+        cars = new HashedOrderedArrayList<>(Comparator.comparing(Car::getLicensePlate), Car::getLicensePlate);
+        initialCars = List.of(scoda, audi, mercedes, volvo1, daf1);
+        cars.addAll(initialCars);
+    }
+
+    @Test
+    public void indexOfFindsItemsInBothSections() {
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+        cars.sort();
+        cars.add(volvo2);
+        cars.add(daf2);
+        assertEquals(initialCars.size(), cars.nSorted);
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+
+        assertEquals(cars.size() - 1, cars.indexOf(new Car(daf2.getLicensePlate())),
+                "indexOf shall only consider the license plate");
+        assertEquals(-1, cars.indexOf(new Car("XX-00-XX")));
+        assertEquals(-1, cars.indexOf(null));
+    }
+
+    @Test
+    public void insertAndRemoveSustainIndex() {
+        cars.sort();
+        cars.add(1, volvo2);
+        assertEquals(1, cars.indexOf(volvo2));
+        CarsListTest.checkRepresentationInvariant(cars);
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+
+        assertTrue(cars.remove(scoda));
+        assertEquals(-1, cars.indexOf(scoda));
+        assertSame(audi, cars.remove(cars.indexOf(audi)));
+        CarsListTest.checkRepresentationInvariant(cars);
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+
+        cars.set(0, daf2);
+        assertEquals(0, cars.indexOf(daf2));
+        assertEquals(-1, cars.indexOf(volvo2), "the replaced item shall not be found anymore");
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+    }
+
+    @Test
+    public void sortMergingTheUnsortedSectionSustainsIndex() {
+        cars.sort();
+        cars.addAll(List.of(daf2, volvo2, new Car("ZZ-99-ZZ")));
+        cars.sort();
+        assertEquals(cars.size(), cars.nSorted);
+        CarsListTest.checkRepresentationInvariant(cars);
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+    }
+
+    @Test
+    public void indexFindsTheFirstOfDuplicates() {
+        Car scoda2 = new Car(scoda.getLicensePlate());
+        cars.add(scoda2);
+        assertEquals(0, cars.indexOf(scoda2));
+        cars.remove(0);
+        assertSame(scoda2, cars.get(cars.indexOf(scoda)),
+                "the remaining duplicate shall be found after the first has been removed");
+        cars.add(0, scoda);
+        assertEquals(0, cars.indexOf(scoda2));
+    }
+
+    @Test
+    public void indexFollowsChangesBehindItsBack() {
+        cars.removeIf(car -> car.getCarType() == Car.CarType.Car);
+        assertEquals(-1, cars.indexOf(scoda));
+        assertEquals(-1, cars.indexOf(audi));
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+
+        cars.subList(0, 1).clear();
+        CarsListTest.testSearchForAll(cars, cars::indexOf);
+        assertEquals(-1, cars.indexOf(mercedes));
+    }
+
+    @Test
+    public void mergeAndAggregateFollowAllChanges() {
+        HashedOrderedArrayList<Violation> violations = new HashedOrderedArrayList<>(
+                Violation::compareByLicensePlateAndCity,
+                violation -> List.of(violation.getCar(), violation.getCity()),
+                Violation::calculateRevenue);
+        violations.merge(new Violation(volvo1, "Amsterdam"), Violation::combineOffencesCounts);
+        violations.merge(new Violation(daf1, "Amsterdam"), Violation::combineOffencesCounts);
+        assertEquals(25 + 35, violations.getAggregate());
+
+        assertFalse(violations.merge(new Violation(volvo1, "Amsterdam", 3), Violation::combineOffencesCounts));
+        assertTrue(violations.merge(new Violation(volvo1, "Rotterdam"), Violation::combineOffencesCounts));
+        assertEquals(4 * 25 + 35 + 25, violations.getAggregate());
+        assertEquals(4 * 25 + 35 + 25, violations.aggregate(Violation::calculateRevenue));
+
+        violations.remove(new Violation(daf1, "Amsterdam"));
+        violations.sort();
+        assertEquals(4 * 25 + 25, violations.getAggregate());
+        violations.removeIf(violation -> violation.getCity().equals("Rotterdam"));
+        assertEquals(4 * 25, violations.getAggregate());
+
+        // changes to the items themselves are only seen by a new aggregate
+        violations.get(0).setOffencesCount(5);
+        assertEquals(4 * 25, violations.getAggregate());
+        assertEquals(5 * 25, violations.aggregate(Violation::calculateRevenue));
+        violations.recalculateAggregate();
+        assertEquals(5 * 25, violations.getAggregate());
+    }
+
+    @Test
+    public void aggregateNeedsAnAggregatorForARunningTotal() {
+        assertThrows(IllegalStateException.class, () -> cars.getAggregate());
+        assertEquals(cars.size(), cars.aggregate(car -> 1.0));
+    }
+
+    @Test
+    public void lookupsInALargeUnsortedSectionAreFast() {
+        final int numberOfCars = 200000;
+        cars.sort();
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < numberOfCars; i++) {
+                Car car = new Car("%06d".formatted(i));
+                if (cars.indexOf(car) < 0) cars.add(car);
+            }
+            for (int i = 0; i < numberOfCars; i++) {
+                assertTrue(cars.indexOf(new Car("%06d".formatted(i))) >= initialCars.size());
+            }
+        });
+        assertEquals(initialCars.size(), cars.nSorted);
+    }
+}
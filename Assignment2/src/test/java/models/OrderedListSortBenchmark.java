@@ -0,0 +1,159 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the incremental sort of OrderedArrayList, which only sorts the unsorted section and merges it,
+ * with a sort of the complete list, as TrafficTracker re-sorts its violations before it merges every detections file.
+ * The merge benchmarks replay the violations of all detection files of the 2022-09 vault in the order of the vault.
+ * The append benchmarks sort a list of a million cars after appending a few or many new cars.
+ * Run with the main method from the test classpath, which also reports the allocation rates of the gc profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderedListSortBenchmark {
+    private static final String VAULT_NAME = "/2022-09";
+
+    @State(Scope.Thread)
+    public static class Vault {
+        @Param({"false", "true"})
+        private boolean hashed;
+
+        private List<List<Violation>> violationsByFile;
+
+        @Setup(Level.Trial)
+        public void setup() throws URISyntaxException {
+            TrafficTracker trafficTracker = new TrafficTracker();
+            trafficTracker.importCarsFromVault(VAULT_NAME + "/cars.txt");
+
+            Path detections = Path.of(TrafficTracker.class.getResource(VAULT_NAME + "/detections").toURI());
+            violationsByFile = new ArrayList<>();
+            try (Stream<Path> files = Files.walk(detections)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".txt")).sorted().toList()) {
+                    List<Detection> newDetections = new ArrayList<>();
+                    TrafficTracker.importItemsFromFile(newDetections, file.toFile(),
+                            line -> Detection.fromLine(line, trafficTracker.getCars()));
+                    violationsByFile.add(newDetections.stream()
+                            .filter(Objects::nonNull)
+                            .map(Detection::validatePurple)
+                            .filter(Objects::nonNull)
+                            .toList());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        OrderedArrayList<Violation> createViolations() {
+            return hashed
+                    ? new HashedOrderedArrayList<>(Violation::compareByLicensePlateAndCity,
+                            violation -> List.of(violation.getCar(), violation.getCity()))
+                    : new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AppendedCars {
+        @Param({"false", "true"})
+        private boolean hashed;
+
+        @Param({"100", "10000"})
+        private int appended;
+
+        private List<Car> sortedCars;
+        private List<Car> newCars;
+        private OrderedArrayList<Car> cars;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(22);
+            sortedCars = new ArrayList<>();
+            for (int i = 0; i < 1000000; i++) {
+                sortedCars.add(new Car("%08d".formatted(random.nextInt(100000000))));
+            }
+            sortedCars.sort(Comparator.comparing(Car::getLicensePlate));
+            newCars = new ArrayList<>();
+            for (int i = 0; i < appended; i++) {
+                newCars.add(new Car("%08d".formatted(random.nextInt(100000000))));
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void appendNewCars() {
+            cars = hashed
+                    ? new HashedOrderedArrayList<>(Comparator.comparing(Car::getLicensePlate), Car::getLicensePlate)
+                    : new OrderedArrayList<>(Comparator.comparing(Car::getLicensePlate));
+            cars.addAll(sortedCars);
+            cars.nSorted = sortedCars.size();
+            cars.addAll(newCars);
+        }
+    }
+
+    @Benchmark
+    public int mergeVaultWithIncrementalSorts(Vault vault) {
+        OrderedArrayList<Violation> violations = vault.createViolations();
+        for (List<Violation> newViolations : vault.violationsByFile) {
+            violations.sort();
+            for (Violation violation : newViolations) {
+                violations.merge(violation, Violation::combineOffencesCounts);
+            }
+        }
+        return violations.size();
+    }
+
+    @Benchmark
+    public int mergeVaultWithFullSorts(Vault vault) {
+        OrderedArrayList<Violation> violations = vault.createViolations();
+        for (List<Violation> newViolations : vault.violationsByFile) {
+            violations.sort(violations.getOrdening());
+            for (Violation violation : newViolations) {
+                violations.merge(violation, Violation::combineOffencesCounts);
+            }
+        }
+        return violations.size();
+    }
+
+    @Benchmark
+    public OrderedArrayList<Car> sortAfterAppendIncrementally(AppendedCars state) {
+        state.cars.sort();
+        return state.cars;
+    }
+
+    @Benchmark
+    public OrderedArrayList<Car> sortAfterAppendCompletely(AppendedCars state) {
+        state.cars.sort(state.cars.getOrdening());
+        return state.cars;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(OrderedListSortBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
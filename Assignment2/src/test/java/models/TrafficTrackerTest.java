@@ -3,10 +3,34 @@ package models;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TrafficTrackerTest {
     private final static String VAULT_NAME = "/test1";
@@ -56,4 +80,167 @@ public class TrafficTrackerTest {
         assertEquals(7, trafficTracker.getViolations().stream().mapToInt(Violation::getOffencesCount).sum(),
                 "Total number of offences across all Violation instances did not match.");
     }
+
+    @Test
+    public void parallelImportMatchesSequentialImport() {
+        for (String vaultName : new String[]{VAULT_NAME, "/2022-09"}) {
+            TrafficTracker sequential = new TrafficTracker();
+            sequential.importCarsFromVault(vaultName + "/cars.txt");
+            sequential.importDetectionsFromVault(vaultName + "/detections", false);
+
+            TrafficTracker parallel = new TrafficTracker();
+            parallel.importCarsFromVault(vaultName + "/cars.txt");
+            parallel.importDetectionsFromVault(vaultName + "/detections", true);
+
+            assertEquals(sequential.getCars().toString(), parallel.getCars().toString(),
+                    "the parallel import should add the same unknown cars in the same order");
+            assertEquals(sequential.getViolations().toString(), parallel.getViolations().toString(),
+                    "the parallel import should find the same violations in the same order");
+            CarsListTest.checkRepresentationInvariant(parallel.getViolations());
+            for (Violation violation : parallel.getViolations()) {
+                assertSame(violation.getCar(), parallel.getCars().get(parallel.getCars().indexOf(violation.getCar())),
+                        "violations should refer to the cars of the tracker");
+            }
+        }
+    }
+
+    @Test
+    public void streamedDetectionsAreCountedAtOnce() {
+        OrderedList<Car> cars = trafficTracker.getCars();
+        Car truck = cars.get(cars.indexOf(new Car("227-HX-3")));
+        Car car = cars.get(cars.indexOf(new Car("081-DJ-3")));
+        assertEquals(7 * 25, trafficTracker.calculateTotalFines());
+
+        assertTrue(trafficTracker.addDetection(new Detection(truck, "Leiden", LocalDateTime.of(2022, 10, 1, 8, 0))));
+        assertFalse(trafficTracker.addDetection(new Detection(car, "Leiden", LocalDateTime.of(2022, 10, 1, 8, 5))));
+        assertEquals(8 * 25, trafficTracker.calculateTotalFines());
+        assertEquals(3, trafficTracker.getViolations().size());
+
+        assertEquals(2, trafficTracker.addDetections(Arrays.asList(
+                new Detection(truck, "Leiden", LocalDateTime.of(2022, 10, 1, 9, 0)),
+                null,
+                Detection.fromLine("227-HX-3, Leiden, 2022-10-01T10:00:00", cars),
+                Detection.fromLine("081-DJ-3, Leiden, 2022-10-01T10:00:00", cars))));
+        assertEquals(10 * 25, trafficTracker.calculateTotalFines());
+        assertEquals(10, trafficTracker.topViolationsByCar(1).get(0).getOffencesCount());
+        assertEquals("Amsterdam", trafficTracker.topViolationsByCity(3).get(0).getCity());
+        assertEquals(3, trafficTracker.topViolationsByCity(3).get(1).getOffencesCount());
+        assertEquals(12, cars.size(), "streaming should not add known cars");
+    }
+
+    @Test
+    public void equalCountsKeepTheOrderOfTheirFirstOffence() {
+        TrafficTracker tracker = new TrafficTracker();
+        tracker.importCarsFromVault(VAULT_NAME + "/cars.txt");
+        OrderedList<Car> cars = tracker.getCars();
+        Car truck = cars.get(cars.indexOf(new Car("227-HX-3")));
+        for (String city : new String[]{"Utrecht", "Delft", "Zwolle", "Amsterdam", "Delft"}) {
+            tracker.addDetection(new Detection(truck, city, LocalDateTime.of(2022, 10, 1, 8, 0)));
+        }
+
+        assertEquals("[null/Delft/2, null/Utrecht/1, null/Zwolle/1, null/Amsterdam/1]",
+                tracker.topViolationsByCity(4).toString());
+        assertEquals(tracker.topViolationsByCity(4).toString(), tracker.selectTopViolationsByCity(4).toString());
+        assertEquals("[null/Delft/2, null/Utrecht/1]", tracker.topViolationsByCity(2).toString());
+    }
+
+    @Test
+    public void liveTopViolationsMatchScannedTopViolations() {
+        TrafficTracker tracker = new TrafficTracker();
+        tracker.importCarsFromVault("/2022-09/cars.txt");
+        tracker.importDetectionsFromVault("/2022-09/detections", true);
+
+        for (TrafficTracker source : new TrafficTracker[]{trafficTracker, tracker}) {
+            for (int topNumber : new int[]{0, 1, 3, 10, 100, 1000}) {
+                assertEquals(source.selectTopViolationsByCar(topNumber).toString(),
+                        source.topViolationsByCar(topNumber).toString(),
+                        "the top %d by car should be equal, including the order of equal counts".formatted(topNumber));
+                assertEquals(source.selectTopViolationsByCity(topNumber).toString(),
+                        source.topViolationsByCity(topNumber).toString(),
+                        "the top %d by city should be equal, including the order of equal counts".formatted(topNumber));
+            }
+            for (Violation violation : source.topViolationsByCar(1000)) {
+                assertEquals(violation.getOffencesCount(), source.getOffencesCountByCar(violation.getCar()));
+            }
+            for (Violation violation : source.topViolationsByCity(1000)) {
+                assertEquals(violation.getOffencesCount(), source.getOffencesCountByCity(violation.getCity()));
+            }
+        }
+        assertNull(trafficTracker.topViolationsByCity(1).get(0).getCar());
+        assertEquals(1, trafficTracker.topViolationsByCar(5).size());
+        assertEquals(7, trafficTracker.getOffencesCountByCar(new Car("227-HX-3")));
+        assertEquals(0, trafficTracker.getOffencesCountByCar(new Car("081-DJ-3")));
+        assertEquals(5, trafficTracker.getOffencesCountByCity("Amsterdam"));
+        assertEquals(0, trafficTracker.getOffencesCountByCity("Leiden"));
+
+        trafficTracker.importDetectionsFromVault(VAULT_NAME + "/detections");
+        assertEquals(7, trafficTracker.getOffencesCountByCar(new Car("227-HX-3")),
+                "a new import should start counting from scratch");
+    }
+
+    @Test
+    public void timeWindowsAggregateTheOffencesOfTheirHours() throws URISyntaxException, IOException {
+        TrafficTracker tracker = new TrafficTracker();
+        tracker.importCarsFromVault("/2022-09/cars.txt");
+        tracker.importDetectionsFromVault("/2022-09/detections", true);
+
+        // replay all offences of the vault to count them by brute force
+        List<Detection> offences = new ArrayList<>();
+        List<Car> cars = new ArrayList<>(tracker.getCars());
+        try (Stream<Path> files = Files.walk(Path.of(TrafficTracker.class.getResource("/2022-09/detections").toURI()))) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".txt")).toList()) {
+                TrafficTracker.importItemsFromFile(offences, file.toFile(), line -> Detection.fromLine(line, cars));
+            }
+        }
+        offences.removeIf(detection -> detection == null || !detection.violatesPurple());
+
+        LocalDate monday = LocalDate.of(2022, 9, 5);
+        Map<String, Integer> expected = new HashMap<>();
+        for (Detection offence : offences) {
+            LocalTime time = offence.getDateTime().toLocalTime();
+            LocalDate date = offence.getDateTime().toLocalDate();
+            if (offence.getCity().equals("Rotterdam") && !date.isBefore(monday) && !date.isAfter(monday.plusDays(6))
+                    && time.getHour() >= 6 && time.getHour() < 9) {
+                expected.merge(offence.getCar().getLicensePlate(), 1, Integer::sum);
+            }
+        }
+        List<Violation> top = tracker.topViolationsByCar(1000, "Rotterdam", monday, monday.plusDays(6),
+                LocalTime.of(6, 0), LocalTime.of(9, 0));
+        assertEquals(expected, top.stream().collect(Collectors.toMap(v -> v.getCar().getLicensePlate(), Violation::getOffencesCount)));
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getOffencesCount() >= top.get(i).getOffencesCount());
+        }
+        assertEquals(top.subList(0, 3).toString(), tracker.topViolationsByCar(3, "Rotterdam", monday, monday.plusDays(6),
+                LocalTime.of(6, 0), LocalTime.of(9, 0)).toString());
+
+        // the whole month equals the totals
+        LocalDateTime from = LocalDateTime.of(2022, 8, 1, 0, 0), to = LocalDateTime.of(2022, 11, 1, 0, 0);
+        assertEquals(tracker.topViolationsByCity(10).toString(), tracker.topViolationsByCity(10, from, to).toString());
+        assertEquals(tracker.topViolationsByCar(1000).stream().collect(Collectors.toMap(Violation::getCar, Violation::getOffencesCount)),
+                tracker.topViolationsByCar(1000, null, from, to).stream().collect(Collectors.toMap(Violation::getCar, Violation::getOffencesCount)));
+        assertTrue(tracker.topViolationsByCar(10, "Rotterdam", from, from.plusDays(1)).isEmpty());
+
+        for (ChronoUnit period : new ChronoUnit[]{ChronoUnit.HOURS, ChronoUnit.DAYS, ChronoUnit.WEEKS}) {
+            SortedMap<LocalDateTime, Integer> counts = tracker.countOffencesPer(null, period);
+            assertEquals(offences.size(), counts.values().stream().mapToInt(Integer::intValue).sum(), period.toString());
+            assertEquals(tracker.getOffencesCountByCity("Leiden"),
+                    tracker.countOffencesPer("Leiden", period).values().stream().mapToInt(Integer::intValue).sum());
+        }
+        for (LocalDateTime week : tracker.countOffencesPer(null, ChronoUnit.WEEKS).keySet()) {
+            assertEquals(DayOfWeek.MONDAY, week.getDayOfWeek());
+            assertEquals(LocalTime.MIDNIGHT, week.toLocalTime());
+        }
+        assertThrows(IllegalArgumentException.class, () -> tracker.countOffencesPer(null, ChronoUnit.MONTHS));
+
+        TrafficTracker sequential = new TrafficTracker();
+        sequential.importCarsFromVault("/2022-09/cars.txt");
+        sequential.importDetectionsFromVault("/2022-09/detections", false);
+        assertEquals(sequential.countOffencesPer(null, ChronoUnit.HOURS), tracker.countOffencesPer(null, ChronoUnit.HOURS));
+
+        assertTimeout(Duration.ofSeconds(1), () -> {
+            for (int i = 0; i < 1000; i++) {
+                tracker.topViolationsByCar(10, "Rotterdam", monday, monday.plusDays(6), LocalTime.of(6, 0), LocalTime.of(9, 0));
+            }
+        }, "a query of a week should take less than a millisecond");
+    }
 }
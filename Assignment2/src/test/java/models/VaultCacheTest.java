@@ -0,0 +1,144 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VaultCacheTest {
+    private static final String VAULT_NAME = "/cached-2022-09";
+
+    @TempDir
+    Path cacheFolder;
+
+    File cacheFile;
+    Path vault;
+
+    @BeforeEach
+    public void setup() throws URISyntaxException, IOException {
+        Locale.setDefault(Locale.ENGLISH);
+        cacheFile = cacheFolder.resolve("vault.cache").toFile();
+
+        // a copy of the vault among the test resources, such that its files can be changed
+        Path source = Path.of(TrafficTracker.class.getResource("/2022-09/detections").toURI());
+        vault = Path.of(VaultCacheTest.class.getResource("/").toURI()).resolve(VAULT_NAME.substring(1));
+        deleteVault();
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, vault.resolve(source.relativize(file).toString()));
+            }
+        }
+    }
+
+    @AfterEach
+    public void deleteVault() throws IOException {
+        if (!Files.exists(vault)) return;
+        try (Stream<Path> files = Files.walk(vault)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static TrafficTracker importVault(File cacheFile) {
+        TrafficTracker tracker = new TrafficTracker();
+        tracker.importCarsFromVault("/2022-09/cars.txt");
+        if (cacheFile == null) {
+            tracker.importDetectionsFromVault(VAULT_NAME, true);
+        } else {
+            tracker.importDetectionsFromVault(VAULT_NAME, cacheFile);
+        }
+        return tracker;
+    }
+
+    private static void assertSameImport(TrafficTracker expected, TrafficTracker actual) {
+        assertEquals(expected.getCars().toString(), actual.getCars().toString());
+        assertEquals(expected.getViolations().toString(), actual.getViolations().toString());
+        assertEquals(expected.topViolationsByCar(10).toString(), actual.topViolationsByCar(10).toString());
+        assertEquals(expected.topViolationsByCity(10).toString(), actual.topViolationsByCity(10).toString());
+        assertEquals(expected.calculateTotalFines(), actual.calculateTotalFines());
+        assertEquals(expected.countOffencesPer(null, ChronoUnit.HOURS), actual.countOffencesPer(null, ChronoUnit.HOURS));
+        CarsListTest.checkRepresentationInvariant(actual.getCars());
+    }
+
+    private Object cacheFileKey() throws IOException {
+        // the cache file is replaced as a whole, so its key tells whether it has been written again
+        return Files.readAttributes(cacheFile.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    @Test
+    public void unchangedVaultIsReadFromCache() throws IOException {
+        TrafficTracker parsed = importVault(null);
+        assertSameImport(parsed, importVault(cacheFile));
+        assertTrue(cacheFile.isFile());
+
+        Object key = cacheFileKey();
+        long size = cacheFile.length();
+        assertSameImport(parsed, importVault(cacheFile));
+        assertEquals(key, cacheFileKey(), "the cache file should not be written again if no file changed");
+        assertEquals(size, cacheFile.length());
+    }
+
+    @Test
+    public void repeatedImportsByOneTrackerKeepTheCache() throws IOException {
+        TrafficTracker tracker = importVault(cacheFile);
+        Object key = cacheFileKey();
+
+        // the second import already knows the new cars of the first import
+        tracker.importDetectionsFromVault(VAULT_NAME, cacheFile);
+        assertEquals(key, cacheFileKey(), "the cache file should not be written again by a repeated import");
+        assertSameImport(importVault(null), tracker);
+
+        assertSameImport(importVault(null), importVault(cacheFile));
+        assertEquals(key, cacheFileKey(), "a new tracker should still find all files in the cache");
+    }
+
+    @Test
+    public void changedAndNewFilesAreParsedAgain() throws IOException {
+        importVault(cacheFile);
+        Object key = cacheFileKey();
+
+        Path leiden = vault.resolve("Leiden/5.txt");
+        Files.writeString(leiden, "227-HX-3, Leiden, 2022-09-30T08:00:00\nXX-99-ZZ, Leiden, 2022-09-30T08:05:00\n",
+                StandardOpenOption.APPEND);
+        Files.createDirectories(vault.resolve("Delft"));
+        Files.writeString(vault.resolve("Delft/1.txt"), String.join("\n", Files.readAllLines(leiden).subList(0, 100)));
+        Files.delete(vault.resolve("Utrecht").toFile().listFiles()[0].toPath());
+
+        TrafficTracker cached = importVault(cacheFile);
+        assertNotEquals(key, cacheFileKey());
+        assertSameImport(importVault(null), cached);
+        assertTrue(cached.getCars().indexOf(new Car("XX-99-ZZ")) >= 0);
+        assertSameImport(importVault(null), importVault(cacheFile));
+    }
+
+    @Test
+    public void cacheOfOtherCarsOrCorruptCacheIsIgnored() throws IOException {
+        importVault(cacheFile);
+
+        TrafficTracker changedCars = new TrafficTracker();
+        changedCars.importCarsFromVault("/2022-09/cars.txt");
+        for (Car car : changedCars.getCars()) car.setEmissionCategory(6);
+        changedCars.importDetectionsFromVault(VAULT_NAME, cacheFile);
+        assertEquals(0, changedCars.calculateTotalFines(), "the cached offences of the former cars should be ignored");
+
+        byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+        Files.write(cacheFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertSameImport(importVault(null), importVault(cacheFile));
+    }
+}
@@ -0,0 +1,95 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of parsing the cars and all detection files of the 2022-09 vault into Cars and Detections,
+ * by a Scanner with String.split per line, versus the memory-mapped CsvTokenizer,
+ * which finds the cars of the detections by the encoded plate in a CarRegistry.
+ * Every operation parses the complete vault, 250 cars and 50000 detections.
+ * Run with the main method from the test classpath, which also reports the allocation rates of the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class VaultParsingBenchmark {
+    private static final String VAULT_NAME = "/2022-09";
+
+    private File carsFile;
+    private List<File> detectionFiles;
+
+    @Setup(Level.Trial)
+    public void setup() throws URISyntaxException {
+        carsFile = new File(TrafficTracker.class.getResource(VAULT_NAME + "/cars.txt").toURI());
+        Path detections = Path.of(TrafficTracker.class.getResource(VAULT_NAME + "/detections").toURI());
+        try (Stream<Path> files = Files.walk(detections)) {
+            detectionFiles = files.filter(path -> path.toString().endsWith(".txt")).sorted().map(Path::toFile).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Car> createCars() {
+        // the same list of cars as the TrafficTracker, such that the search for the cars of detections stays small
+        return new HashedOrderedArrayList<>(Comparator.comparing(Car::getLicensePlate), Car::getLicensePlate);
+    }
+
+    @Benchmark
+    public int parseLinesByScanner() {
+        List<Car> cars = createCars();
+        TrafficTracker.importItemsFromFile(cars, carsFile, Car::fromLine);
+        int numberOfDetections = 0;
+        for (File file : detectionFiles) {
+            List<Detection> newDetections = new ArrayList<>();
+            numberOfDetections += TrafficTracker.importItemsFromFile(newDetections, file,
+                    line -> Detection.fromLine(line, cars));
+        }
+        return numberOfDetections;
+    }
+
+    @Benchmark
+    public int parseRecordsWithRegistry() {
+        List<Car> cars = createCars();
+        TrafficTracker.importRecordsFromFile(cars, carsFile, Car::fromRecord);
+        CarRegistry registry = new CarRegistry();
+        for (Car car : cars) registry.register(car);
+        int numberOfDetections = 0;
+        for (File file : detectionFiles) {
+            List<Detection> newDetections = new ArrayList<>();
+            numberOfDetections += TrafficTracker.importRecordsFromFile(newDetections, file,
+                    record -> Detection.fromRecord(record, cars, registry));
+        }
+        return numberOfDetections;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(VaultParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,86 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViolationTableTest {
+
+    Car volvo, daf, audi, foreign;
+    ViolationTable violations;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        volvo = new Car("1-TTT-01", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        daf = new Car("1-CCC-01", 5, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        audi = new Car("AA-11-BB", 4, Car.CarType.Car, Car.FuelType.Diesel, LocalDate.of(1998, 1, 31));
+        foreign = new Car("d-ab-123", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        violations = new ViolationTable();
+    }
+
+    @Test
+    public void addIncrementsTheCounterOfTheRow() {
+        assertEquals(0, violations.add(volvo, "Amsterdam", 1));
+        assertEquals(1, violations.add(daf, "Amsterdam", 1));
+        assertEquals(2, violations.add(volvo, "Rotterdam", 2));
+        assertEquals(3, violations.add(foreign, "Amsterdam", 1));
+        assertEquals(0, violations.add(new Car(volvo.getLicensePlate()), "Amsterdam", 3),
+                "rows shall only consider the license plate of the car");
+        assertEquals(3, violations.add(new Car("d-ab-123"), new String("Amsterdam"), 1));
+
+        assertEquals(4, violations.size());
+        assertEquals(4, violations.getOffencesCount(0));
+        assertSame(volvo, violations.getCar(0));
+        assertEquals("Rotterdam", violations.getCity(2));
+        assertEquals(2, violations.indexOf(volvo, "Rotterdam"));
+        assertEquals(-1, violations.indexOf(daf, "Rotterdam"));
+        assertEquals(-1, violations.indexOf(volvo, "Leiden"));
+        assertEquals("1-TTT-01/Rotterdam/2", violations.getViolation(2).toString());
+
+        assertEquals((4 + 2 + 2) * 25 + 35, violations.calculateTotalFines());
+        violations.add(audi, "Amsterdam", 10);
+        assertEquals((4 + 2 + 2) * 25 + 35, violations.calculateTotalFines(), "cars do not pay fines");
+        assertEquals(violations.calculateTotalFines(), violations.aggregate(Violation::calculateRevenue));
+        assertEquals(violations.toOrderedList().aggregate(violation -> (double) violation.getOffencesCount()),
+                violations.aggregate(violation -> (double) violation.getOffencesCount()));
+    }
+
+    @Test
+    public void toOrderedListSortsByLicensePlateAndCity() {
+        violations.add(volvo, "Rotterdam", 1);
+        violations.add(foreign, "Amsterdam", 1);
+        violations.add(volvo, "Amsterdam", 1);
+        violations.add(daf, "Amsterdam", 1);
+
+        OrderedList<Violation> list = violations.toOrderedList();
+        CarsListTest.checkRepresentationInvariant(list);
+        assertEquals("[1-CCC-01/Amsterdam/1, 1-TTT-01/Amsterdam/1, 1-TTT-01/Rotterdam/1, d-ab-123/Amsterdam/1]",
+                list.toString());
+    }
+
+    @Test
+    public void growsAndMergesOtherTables() {
+        ViolationTable other = new ViolationTable();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, violations.add(new Car("%06d".formatted(i)), "City" + (i % 7), 1));
+            other.add(new Car("%06d".formatted(i / 2)), "City" + (i / 2 % 7), 1);
+        }
+        violations.addAll(other);
+        assertEquals(10000, violations.size());
+        for (int i = 0; i < 10000; i++) {
+            int row = violations.indexOf(new Car("%06d".formatted(i)), "City" + (i % 7));
+            assertEquals(i, row);
+            assertEquals(i < 5000 ? 3 : 1, violations.getOffencesCount(row));
+        }
+
+        violations.clear();
+        assertEquals(0, violations.size());
+        assertEquals(-1, violations.indexOf(new Car("000000"), "City0"));
+        assertEquals(0, violations.add(daf, "Leiden", 1));
+    }
+}